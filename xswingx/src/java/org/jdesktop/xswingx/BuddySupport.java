@@ -4,7 +4,9 @@ import java.awt.Component;
 import java.awt.Insets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Box;
 import javax.swing.JComponent;
@@ -20,6 +22,121 @@ public class BuddySupport {
 
 	public static final String OUTER_MARGIN = "outerMargin";
 
+	/**
+	 * Collects changes of the buddies of a text field, which are applied at
+	 * once by {@link #commit()}. Buddies are added like by
+	 * {@link BuddySupport#add(Component, Position, JTextField)}. The changes
+	 * are recorded and applied to the buddies the text field has at the time
+	 * of the commit, so buddies added or removed in the meantime are kept.
+	 * 
+	 * <pre>
+	 * BuddySupport.edit(textField).addLeft(backButton).addRight(reloadButton).addRight(goButton).commit();
+	 * </pre>
+	 * 
+	 * @see BuddySupport#edit(JTextField)
+	 */
+	public static final class Edit {
+		private final JTextField textField;
+
+		private final List<Operation> operations = new ArrayList<Operation>();
+
+		private Edit(JTextField textField) {
+			this.textField = textField;
+		}
+
+		public Edit addLeft(Component c) {
+			return add(c, Position.LEFT);
+		}
+
+		public Edit addRight(Component c) {
+			return add(c, Position.RIGHT);
+		}
+
+		public Edit add(final Component c, final Position pos) {
+			operations.add(new Operation() {
+				public void apply(List<Component> left, List<Component> right) {
+					if (Position.LEFT == pos) {
+						left.add(c);
+					} else {
+						right.add(0, c);
+					}
+				}
+			});
+			return this;
+		}
+
+		public Edit addGap(int width, Position pos) {
+			return add(createGap(width), pos);
+		}
+
+		public Edit remove(final Component c) {
+			operations.add(new Operation() {
+				public void apply(List<Component> left, List<Component> right) {
+					left.remove(c);
+					right.remove(c);
+				}
+			});
+			return this;
+		}
+
+		public Edit removeAll() {
+			operations.add(new Operation() {
+				public void apply(List<Component> left, List<Component> right) {
+					left.clear();
+					right.clear();
+				}
+			});
+			return this;
+		}
+
+		/**
+		 * Applies all changes to the current buddies and revalidates the text
+		 * field once.
+		 * 
+		 * @throws IllegalStateException
+		 *             if a component has been added more than once
+		 */
+		public void commit() {
+			List<Component> left = new ArrayList<Component>(buddies(Position.LEFT, textField));
+			List<Component> right = new ArrayList<Component>(buddies(Position.RIGHT, textField));
+			for (Operation operation : operations) {
+				operation.apply(left, right);
+			}
+
+			Set<Component> buddies = new HashSet<Component>();
+			for (Component c : left) {
+				if (!buddies.add(c)) {
+					throw new IllegalStateException("Component already added.");
+				}
+			}
+			for (Component c : right) {
+				if (!buddies.add(c)) {
+					throw new IllegalStateException("Component already added.");
+				}
+			}
+			replace(textField, left, right);
+		}
+
+		/**
+		 * A recorded change of the buddy lists.
+		 */
+		private interface Operation {
+			void apply(List<Component> left, List<Component> right);
+		}
+	}
+
+	/**
+	 * Starts collecting changes of the buddies of <code>textField</code>,
+	 * which are applied by {@link Edit#commit()}.
+	 * 
+	 * @param textField
+	 *            the text field
+	 * @return the changes to apply
+	 */
+	public static Edit edit(JTextField textField) {
+		return new Edit(textField);
+	}
+
 	public static void addLeft(Component c, JTextField textField) {
 		add(c, Position.LEFT, textField);
 	}
@@ -50,6 +167,7 @@ public class BuddySupport {
 		}
 
 		addToComponentHierarchy(c, pos, textField);
+		textField.revalidate();
 	}
 	
 	public static void addGap(int width, Position pos, JTextField textField) {
@@ -65,6 +183,7 @@ public class BuddySupport {
 	}
 
 	public static void set(List<Component> buddies, Position pos, JTextField textField) {
+		TextComponentState.get(textField).setBuddies(pos, buddies);
 		textField.putClientProperty(pos, buddies);
 	}
 
@@ -80,13 +199,25 @@ public class BuddySupport {
 		return getBuddies(Position.RIGHT, textField);
 	}
 
+	@SuppressWarnings("unchecked")
 	public static List<Component> getBuddies(Position pos, JTextField textField) {
-		return Collections.unmodifiableList(buddies(pos, textField));
+		TextComponentState state = TextComponentState.peek(textField);
+		if (state == null) {
+			List<Component> buddies = (List<Component>) textField.getClientProperty(pos);
+			return buddies == null ? Collections.<Component> emptyList() : Collections.unmodifiableList(buddies);
+		}
+		List<Component> buddies = state.getBuddyView(pos);
+		if (buddies != null) {
+			return buddies;
+		}
+		return Collections.emptyList();
 	}
 
 	@SuppressWarnings("unchecked")
 	private static List<Component> buddies(Position pos, JTextField textField) {
-		List<Component> buddies = (List<Component>) textField.getClientProperty(pos);
+		TextComponentState state = TextComponentState.peek(textField);
+		List<Component> buddies = state == null ? (List<Component>) textField.getClientProperty(pos) : state
+				.getBuddyList(pos);
 
 		if (buddies != null) {
 			return buddies;
@@ -110,6 +241,7 @@ public class BuddySupport {
 		buddies(Position.RIGHT, textField).remove(c);
 
 		textField.remove(c);
+		textField.revalidate();
 	}
 
 	public static void removeAll(JTextField textField) {
@@ -123,15 +255,80 @@ public class BuddySupport {
 			textField.remove(c);
 		}
 		right.clear();
-		
+		textField.revalidate();
+	}
+
+	/**
+	 * Replaces the buddies of <code>textField</code> with <code>left</code>
+	 * and <code>right</code>, in the order they are laid out (from the left
+	 * respectively right edge towards the text). Only buddies, which are no
+	 * longer contained, are removed from the text field and only new buddies
+	 * are added. Nothing happens, if the buddies do not change.
+	 * 
+	 * @param textField
+	 *            the text field
+	 * @param left
+	 *            the new left buddies
+	 * @param right
+	 *            the new right buddies
+	 */
+	public static void replace(JTextField textField, List<Component> left, List<Component> right) {
+		TextUIWrapper.getDefaultWrapper().install(textField, true);
+
+		List<Component> leftBuddies = buddies(Position.LEFT, textField);
+		List<Component> rightBuddies = buddies(Position.RIGHT, textField);
+		if (leftBuddies.equals(left) && rightBuddies.equals(right) && isInComponentHierarchy(left, textField)
+				&& isInComponentHierarchy(right, textField)) {
+			return;
+		}
+
+		for (Component c : leftBuddies) {
+			if (!left.contains(c) && !right.contains(c)) {
+				textField.remove(c);
+			}
+		}
+		for (Component c : rightBuddies) {
+			if (!left.contains(c) && !right.contains(c)) {
+				textField.remove(c);
+			}
+		}
+
+		leftBuddies = new ArrayList<Component>(left);
+		rightBuddies = new ArrayList<Component>(right);
+		setLeft(textField, leftBuddies);
+		setRight(textField, rightBuddies);
+
+		for (Component c : leftBuddies) {
+			if (c.getParent() != textField) {
+				addToComponentHierarchy(c, Position.LEFT, textField);
+			}
+		}
+		for (Component c : rightBuddies) {
+			if (c.getParent() != textField) {
+				addToComponentHierarchy(c, Position.RIGHT, textField);
+			}
+		}
+		textField.revalidate();
+	}
+
+	private static boolean isInComponentHierarchy(List<Component> buddies, JTextField textField) {
+		for (Component c : buddies) {
+			if (c.getParent() != textField) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	public static void setOuterMargin(JTextField buddyField, Insets margin) {
+		TextComponentState.get(buddyField).outerMargin = margin;
 		buddyField.putClientProperty(OUTER_MARGIN, margin);
+		buddyField.revalidate();
 	}
 
 	public static Insets getOuterMargin(JTextField buddyField) {
-		return (Insets) buddyField.getClientProperty(OUTER_MARGIN);
+		TextComponentState state = TextComponentState.peek(buddyField);
+		return state == null ? (Insets) buddyField.getClientProperty(OUTER_MARGIN) : state.outerMargin;
 	}
 
 	public static void ensureBuddiesAreInComponentHierarchy(JTextField textField) {
@@ -150,10 +150,25 @@ public class JXSearchField extends JXTextField {
 
 	private Timer instantSearchTimer;
 
+	/**
+	 * The time, as returned by {@link System#nanoTime()}, at which the
+	 * delayed instant search action event is due, and at which the instant
+	 * search timer has been scheduled to fire.
+	 */
+	private long instantSearchTime;
+
+	private long instantSearchTimerTime;
+
 	private String recentSearchesSaveKey;
 
 	private RecentSearches recentSearches;
 
+	/**
+	 * The find popup menu, whose UI has not been updated since the last look
+	 * and feel change.
+	 */
+	private JPopupMenu staleFindPopupMenu;
+
 	/**
 	 * Creates a new search field with a default prompt.
 	 */
@@ -584,13 +599,23 @@ public class JXSearchField extends JXTextField {
 	}
 
 	/**
-	 * Returns the find popup menu.
+	 * Returns the find popup menu. Its UI is updated first, if it has not been
+	 * updated since the last look and feel change.
 	 * 
 	 * @see #setFindPopupMenu(JPopupMenu)
+	 * @see #updateUI()
 	 * @return the find popup menu
 	 */
 	public JPopupMenu getFindPopupMenu() {
-		return NativeSearchFieldSupport.getFindPopupMenu(this);
+		JPopupMenu findPopupMenu = NativeSearchFieldSupport.getFindPopupMenu(this);
+		if (staleFindPopupMenu != null) {
+			JPopupMenu stale = staleFindPopupMenu;
+			staleFindPopupMenu = null;
+			if (stale == findPopupMenu) {
+				SwingUtilities.updateComponentTreeUI(findPopupMenu);
+			}
+		}
+		return findPopupMenu;
 	}
 
 	/**
@@ -619,7 +644,8 @@ public class JXSearchField extends JXTextField {
 	/**
 	 * Installs and manages a recent searches popup menu as the find popup menu,
 	 * if <code>recentSearchesSaveKey</code> is not null. Otherwise, removes
-	 * the popup menu and stops managing recent searches.
+	 * the popup menu and stops managing recent searches. Persisted recent
+	 * searches are loaded in the background.
 	 * 
 	 * @see #setFindAction(ActionListener)
 	 * @see #isManagingRecentSearches()
@@ -641,7 +667,7 @@ public class JXSearchField extends JXTextField {
 		}
 
 		if (isValidRecentSearchesKey(recentSearchesSaveKey)) {
-			recentSearches = new RecentSearches(recentSearchesSaveKey);
+			recentSearches = new RecentSearches(null, recentSearchesSaveKey, true);
 			recentSearches.install(this);
 		}
 
@@ -661,7 +687,8 @@ public class JXSearchField extends JXTextField {
 	 * Returns the {@link Timer} used to delay the firing of action events in
 	 * instant search mode when the user enters text.
 	 * 
-	 * This timer calls {@link #postActionEvent()}.
+	 * This timer calls {@link #postActionEvent()}, unless it has been started
+	 * by {@link #startInstantSearchTimer()} and the text changed again since.
 	 * 
 	 * @return the {@link Timer} used to delay the firing of action events
 	 */
@@ -669,7 +696,11 @@ public class JXSearchField extends JXTextField {
 		if (instantSearchTimer == null) {
 			instantSearchTimer = new Timer(0, new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
-					postActionEvent();
+					if (instantSearchTime != instantSearchTimerTime && instantSearchTime - System.nanoTime() > 0) {
+						scheduleInstantSearchTimer();
+					} else {
+						postActionEvent();
+					}
 				}
 			});
 			instantSearchTimer.setRepeats(false);
@@ -677,6 +708,30 @@ public class JXSearchField extends JXTextField {
 		return instantSearchTimer;
 	}
 
+	/**
+	 * Starts the instant search timer, so that an action event is posted after
+	 * the instant search delay, unless this method is invoked again before.
+	 * 
+	 * Restarting a {@link Timer} queues a new entry in the timer queue. To
+	 * avoid this on every keystroke, a running timer is not restarted.
+	 * Instead, when it fires before the delay has passed since the last
+	 * invocation of this method, it is started again with the remaining
+	 * delay.
+	 */
+	public void startInstantSearchTimer() {
+		instantSearchTime = System.nanoTime() + getInstantSearchDelay() * 1000000L;
+		if (!getInstantSearchTimer().isRunning() || instantSearchTime - instantSearchTimerTime < 0) {
+			scheduleInstantSearchTimer();
+		}
+	}
+
+	private void scheduleInstantSearchTimer() {
+		instantSearchTimerTime = instantSearchTime;
+		long delay = (instantSearchTime - System.nanoTime() + 999999) / 1000000;
+		getInstantSearchTimer().setInitialDelay((int) Math.max(0, delay));
+		getInstantSearchTimer().restart();
+	}
+
 	/**
 	 * Returns <code>true</code> if this search field is the focus owner or
 	 * the find popup menu is visible.
@@ -688,19 +743,26 @@ public class JXSearchField extends JXTextField {
 	 *         the find popup menu is visible
 	 */
 	public boolean hasFocus() {
-		if (getFindPopupMenu() != null && getFindPopupMenu().isVisible()) {
+		JPopupMenu findPopupMenu = NativeSearchFieldSupport.getFindPopupMenu(this);
+		if (findPopupMenu != null && findPopupMenu.isVisible()) {
 			return true;
 		}
 		return super.hasFocus();
 	}
 
 	/**
-	 * Overriden to also update the find popup menu if set.
+	 * Overriden to also update the find popup menu if set. The popup menu of a
+	 * native search field is updated immediately, otherwise it is updated when
+	 * it is requested the next time, so that many search fields can switch the
+	 * look and feel without updating popup menus, which are never shown.
+	 * 
+	 * @see #getFindPopupMenu()
 	 */
 	public void updateUI() {
 		super.updateUI();
-		if (getFindPopupMenu() != null) {
-			SwingUtilities.updateComponentTreeUI(getFindPopupMenu());
+		staleFindPopupMenu = NativeSearchFieldSupport.getFindPopupMenu(this);
+		if (NativeSearchFieldSupport.isNativeSearchField(this)) {
+			getFindPopupMenu();
 		}
 	}
 
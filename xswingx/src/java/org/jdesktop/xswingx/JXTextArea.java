@@ -5,10 +5,18 @@ import java.awt.Color;
 import javax.swing.JTextArea;
 
 import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+import org.jdesktop.xswingx.plaf.TextUIWrapper;
 
 /**
  * {@link JTextArea}, with integrated support for prompts.
  * 
+ * By default, the prompt is painted by a prompt text area, which keeps the
+ * layout of the wrapped prompt lines, but paints them through its views. Call
+ * {@link #setPromptRenderingMode(RenderingMode)} with
+ * {@link RenderingMode#DIRECT} to draw cached prompt lines without any text
+ * views.
+ * 
  * @see PromptSupport
  * @see BuddySupport
  * @author Peter Weishapl <petw@gmx.net>
@@ -102,4 +110,29 @@ public class JXTextArea extends JTextArea {
 	public void setPromptFontStyle(Integer fontStyle) {
 		PromptSupport.setFontStyle(fontStyle, this);
 	}
+
+	/**
+	 * @see PromptSupport#getRenderingMode(javax.swing.text.JTextComponent)
+	 */
+	public RenderingMode getPromptRenderingMode() {
+		return PromptSupport.getRenderingMode(this);
+	}
+
+	/**
+	 * @see PromptSupport#setRenderingMode(RenderingMode,
+	 *      javax.swing.text.JTextComponent)
+	 */
+	public void setPromptRenderingMode(RenderingMode renderingMode) {
+		PromptSupport.setRenderingMode(renderingMode, this);
+	}
+
+	/**
+	 * Wraps the UI of the look and feel before it is set, so it is only
+	 * installed once.
+	 * 
+	 * @see TextUIWrapper#updateUI(javax.swing.text.JTextComponent)
+	 */
+	public void updateUI() {
+		TextUIWrapper.getDefaultWrapper().updateUI(this);
+	}
 }
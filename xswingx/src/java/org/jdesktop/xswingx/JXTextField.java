@@ -9,6 +9,8 @@ import javax.swing.JTextField;
 
 import org.jdesktop.xswingx.BuddySupport.Position;
 import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+import org.jdesktop.xswingx.plaf.TextUIWrapper;
 
 /**
  * {@link JTextField}, with integrated support for prompts and buddies.
@@ -107,6 +109,21 @@ public class JXTextField extends JTextField {
 		PromptSupport.setFontStyle(fontStyle, this);
 	}
 
+	/**
+	 * @see PromptSupport#getRenderingMode(javax.swing.text.JTextComponent)
+	 */
+	public RenderingMode getPromptRenderingMode() {
+		return PromptSupport.getRenderingMode(this);
+	}
+
+	/**
+	 * @see PromptSupport#setRenderingMode(RenderingMode,
+	 *      javax.swing.text.JTextComponent)
+	 */
+	public void setPromptRenderingMode(RenderingMode renderingMode) {
+		PromptSupport.setRenderingMode(renderingMode, this);
+	}
+
 	/**
 	 * @see BuddySupport#setOuterMargin(JTextField, Insets)
 	 */
@@ -148,4 +165,14 @@ public class JXTextField extends JTextField {
 	public void removeAllBuddies() {
 		BuddySupport.removeAll(this);
 	}
+
+	/**
+	 * Wraps the UI of the look and feel before it is set, so it is only
+	 * installed once.
+	 * 
+	 * @see TextUIWrapper#updateUI(javax.swing.text.JTextComponent)
+	 */
+	public void updateUI() {
+		TextUIWrapper.getDefaultWrapper().updateUI(this);
+	}
 }
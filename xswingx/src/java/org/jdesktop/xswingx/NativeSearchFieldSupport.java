@@ -69,7 +69,9 @@ public class NativeSearchFieldSupport {
 	}
 
 	public static boolean isSearchField(JTextField txt) {
-		return MAC_SEARCH_VARIANT.equals(txt.getClientProperty(MAC_TEXT_FIELD_VARIANT_PROPERTY));
+		TextComponentState state = TextComponentState.peek(txt);
+		return MAC_SEARCH_VARIANT.equals(state == null ? txt.getClientProperty(MAC_TEXT_FIELD_VARIANT_PROPERTY)
+				: state.textFieldVariant);
 	}
 
 	public static boolean isNativeSearchField(JTextField txt) {
@@ -77,27 +79,33 @@ public class NativeSearchFieldSupport {
 	}
 
 	public static void setFindPopupMenu(JTextField txt, JPopupMenu popupMenu) {
+		TextComponentState.get(txt).findPopupMenu = popupMenu;
 		txt.putClientProperty(FIND_POPUP_PROPERTY, popupMenu);
 	}
 
 	public static JPopupMenu getFindPopupMenu(JTextField txt) {
-		return (JPopupMenu) txt.getClientProperty(FIND_POPUP_PROPERTY);
+		TextComponentState state = TextComponentState.peek(txt);
+		return state == null ? (JPopupMenu) txt.getClientProperty(FIND_POPUP_PROPERTY) : state.findPopupMenu;
 	}
 
 	public static void setFindAction(JTextField txt, ActionListener findAction) {
+		TextComponentState.get(txt).findAction = findAction;
 		txt.putClientProperty(FIND_ACTION_PROPERTY, findAction);
 	}
 
 	public static ActionListener getFindAction(JTextField txt) {
-		return (ActionListener) txt.getClientProperty(FIND_ACTION_PROPERTY);
+		TextComponentState state = TextComponentState.peek(txt);
+		return state == null ? (ActionListener) txt.getClientProperty(FIND_ACTION_PROPERTY) : state.findAction;
 	}
 	
 	public static void setCancelAction(JTextField txt, ActionListener cancelAction) {
+		TextComponentState.get(txt).cancelAction = cancelAction;
 		txt.putClientProperty(CANCEL_ACTION_PROPERTY, cancelAction);
 	}
 
 	public static ActionListener getCancelAction(JTextField txt) {
-		return (ActionListener) txt.getClientProperty(CANCEL_ACTION_PROPERTY);
+		TextComponentState state = TextComponentState.peek(txt);
+		return state == null ? (ActionListener) txt.getClientProperty(CANCEL_ACTION_PROPERTY) : state.cancelAction;
 	}
 
 	private static final SearchFieldUIChangeHandler uiChangeHandler = new SearchFieldUIChangeHandler();
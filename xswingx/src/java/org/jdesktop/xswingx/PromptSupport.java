@@ -5,6 +5,7 @@ import java.awt.Font;
 
 import javax.swing.text.JTextComponent;
 
+import org.jdesktop.xswingx.plaf.PromptImageCache;
 import org.jdesktop.xswingx.plaf.PromptTextUI;
 import org.jdesktop.xswingx.plaf.TextUIWrapper;
 
@@ -57,6 +58,11 @@ public class PromptSupport {
 	 */
 	public static final String FONT_STYLE = "promptFontStyle";
 
+	/**
+	 * The rendering mode property.
+	 */
+	public static final String RENDERING_MODE = "promptRenderingMode";
+
 	/**
 	 * <p>
 	 * Determines how the {@link JTextComponent} is rendered when focused and no
@@ -78,6 +84,37 @@ public class PromptSupport {
 		HIDE_PROMPT
 	};
 
+	/**
+	 * <p>
+	 * Determines how {@link PromptTextUI} renders the prompt text.
+	 * </p>
+	 */
+	public static enum RenderingMode {
+		/**
+		 * Configure a prompt component like the text component and paint it.
+		 * Looks exactly like the text component. Text fields share one prompt
+		 * component, which is configured again whenever another text field is
+		 * painted. Every multi-line text component has its own, which keeps its
+		 * layout until the prompt, font or size change, but still paints the
+		 * prompt through its views.
+		 */
+		COMPONENT,
+		/**
+		 * Draw the prompt text directly inside the text component's insets,
+		 * using a cached text layout. No Swing component is touched while
+		 * painting. Look and feel specific decorations of the text itself,
+		 * like text shadows, are not rendered.
+		 */
+		DIRECT,
+		/**
+		 * Like {@link #DIRECT}, but draw the prompt into an image once and copy
+		 * the image on subsequent paints. Text components with identical
+		 * prompts, sizes and colors share one image. See
+		 * {@link PromptImageCache}.
+		 */
+		IMAGE
+	};
+
 	/**
 	 * <p>
 	 * Convenience method to set the <code>promptText</code> and
@@ -115,7 +152,9 @@ public class PromptSupport {
 	 *         none is set
 	 */
 	public static FocusBehavior getFocusBehavior(JTextComponent textComponent) {
-		FocusBehavior fb = (FocusBehavior) textComponent.getClientProperty(FOCUS_BEHAVIOR);
+		TextComponentState state = TextComponentState.peek(textComponent);
+		FocusBehavior fb = state == null ? (FocusBehavior) textComponent.getClientProperty(FOCUS_BEHAVIOR)
+				: state.focusBehavior;
 		if (fb == null) {
 			fb = FocusBehavior.HIDE_PROMPT;
 		}
@@ -124,15 +163,18 @@ public class PromptSupport {
 
 	/**
 	 * Sets the {@link FocusBehavior} on <code>textComponent</code> and
-	 * repaints the component to reflect the changes, if it is the focus owner.
+	 * repaints the prompt to reflect the changes, if it is the focus owner.
 	 * 
 	 * @param focusBehavior
 	 * @param textComponent
 	 */
 	public static void setFocusBehavior(FocusBehavior focusBehavior, JTextComponent textComponent) {
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.focusBehavior;
+		state.focusBehavior = focusBehavior;
 		textComponent.putClientProperty(FOCUS_BEHAVIOR, focusBehavior);
-		if (textComponent.isFocusOwner()) {
-			textComponent.repaint();
+		if (textComponent.isFocusOwner() && !equal(old, focusBehavior)) {
+			repaintPrompt(textComponent, false);
 		}
 	}
 
@@ -143,7 +185,8 @@ public class PromptSupport {
 	 * @return the prompt text
 	 */
 	public static String getPrompt(JTextComponent textComponent) {
-		return (String) textComponent.getClientProperty(PROMPT);
+		TextComponentState state = TextComponentState.peek(textComponent);
+		return state == null ? (String) textComponent.getClientProperty(PROMPT) : state.prompt;
 	}
 
 	/**
@@ -170,8 +213,13 @@ public class PromptSupport {
 			textComponent.setToolTipText(promptText);
 		}
 
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.prompt;
+		state.prompt = promptText;
 		textComponent.putClientProperty(PROMPT, promptText);
-		textComponent.repaint();
+		if (!equal(old, promptText)) {
+			repaintPrompt(textComponent, false);
+		}
 	}
 
 	/**
@@ -183,23 +231,30 @@ public class PromptSupport {
 	 *         {@link JTextComponent#getDisabledTextColor()} if none is set
 	 */
 	public static Color getForeground(JTextComponent textComponent) {
-		if (textComponent.getClientProperty(FOREGROUND) == null) {
+		TextComponentState state = TextComponentState.peek(textComponent);
+		Color foreground = state == null ? (Color) textComponent.getClientProperty(FOREGROUND) : state.foreground;
+		if (foreground == null) {
 			return textComponent.getDisabledTextColor();
 		}
-		return (Color) textComponent.getClientProperty(FOREGROUND);
+		return foreground;
 	}
 
 	/**
 	 * Sets the foreground color of the prompt on <code>textComponent</code>
-	 * and repaints the component to reflect the changes. This color will be
+	 * and repaints the prompt to reflect the changes. This color will be
 	 * used when no text is present.
 	 * 
 	 * @param promptTextColor
 	 * @param textComponent
 	 */
 	public static void setForeground(Color promptTextColor, JTextComponent textComponent) {
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.foreground;
+		state.foreground = promptTextColor;
 		textComponent.putClientProperty(FOREGROUND, promptTextColor);
-		textComponent.repaint();
+		if (!equal(old, promptTextColor)) {
+			repaintPrompt(textComponent, false);
+		}
 	}
 
 	/**
@@ -212,10 +267,12 @@ public class PromptSupport {
 	 *         present
 	 */
 	public static Color getBackground(JTextComponent textComponent) {
-		if (textComponent.getClientProperty(BACKGROUND) == null) {
+		TextComponentState state = TextComponentState.peek(textComponent);
+		Color background = state == null ? (Color) textComponent.getClientProperty(BACKGROUND) : state.background;
+		if (background == null) {
 			return textComponent.getBackground();
 		}
-		return (Color) textComponent.getClientProperty(BACKGROUND);
+		return background;
 	}
 
 	/**
@@ -236,8 +293,13 @@ public class PromptSupport {
 	public static void setBackground(Color background, JTextComponent textComponent) {
 		TextUIWrapper.getDefaultWrapper().install(textComponent, true);
 
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.background;
+		state.background = background;
 		textComponent.putClientProperty(BACKGROUND, background);
-		textComponent.repaint();
+		if (!equal(old, background)) {
+			repaintPrompt(textComponent, true);
+		}
 	}
 
 	/**
@@ -256,9 +318,14 @@ public class PromptSupport {
 	 * @param textComponent
 	 */
 	public static void setFontStyle(Integer fontStyle, JTextComponent textComponent) {
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.fontStyle;
+		state.fontStyle = fontStyle;
 		textComponent.putClientProperty(FONT_STYLE, fontStyle);
-		textComponent.revalidate();
-		textComponent.repaint();
+		if (!equal(old, fontStyle)) {
+			textComponent.revalidate();
+			repaintPrompt(textComponent, false);
+		}
 	}
 
 	/**
@@ -270,6 +337,55 @@ public class PromptSupport {
 	 * @return font style of the prompt text
 	 */
 	public static Integer getFontStyle(JTextComponent textComponent) {
-		return (Integer) textComponent.getClientProperty(FONT_STYLE);
+		TextComponentState state = TextComponentState.peek(textComponent);
+		return state == null ? (Integer) textComponent.getClientProperty(FONT_STYLE) : state.fontStyle;
+	}
+
+	/**
+	 * Get the {@link RenderingMode} of <code>textComponent</code>.
+	 * 
+	 * @param textComponent
+	 * @return the {@link RenderingMode} or {@link RenderingMode#COMPONENT} if
+	 *         none is set
+	 */
+	public static RenderingMode getRenderingMode(JTextComponent textComponent) {
+		TextComponentState state = TextComponentState.peek(textComponent);
+		RenderingMode mode = state == null ? (RenderingMode) textComponent.getClientProperty(RENDERING_MODE)
+				: state.renderingMode;
+		if (mode == null) {
+			mode = RenderingMode.COMPONENT;
+		}
+		return mode;
+	}
+
+	/**
+	 * Sets the {@link RenderingMode} on <code>textComponent</code> and
+	 * repaints the prompt to reflect the changes.
+	 * 
+	 * @param renderingMode
+	 * @param textComponent
+	 */
+	public static void setRenderingMode(RenderingMode renderingMode, JTextComponent textComponent) {
+		TextComponentState state = TextComponentState.get(textComponent);
+		Object old = state.renderingMode;
+		state.renderingMode = renderingMode;
+		textComponent.putClientProperty(RENDERING_MODE, renderingMode);
+		if (!equal(old, renderingMode)) {
+			repaintPrompt(textComponent, true);
+		}
+	}
+
+	/**
+	 * Repaints the prompt of <code>textComponent</code>, if it is rendered
+	 * by a {@link PromptTextUI} and visible.
+	 */
+	private static void repaintPrompt(JTextComponent textComponent, boolean background) {
+		if (textComponent.getUI() instanceof PromptTextUI) {
+			((PromptTextUI) textComponent.getUI()).repaintPrompt(textComponent, background);
+		}
+	}
+
+	private static boolean equal(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
 	}
 }
@@ -1,22 +1,58 @@
 package org.jdesktop.xswingx;
 
+import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.security.AccessControlException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
+import javax.swing.AbstractAction;
+import javax.swing.AbstractListModel;
+import javax.swing.Action;
+import javax.swing.BorderFactory;
+import javax.swing.InputMap;
+import javax.swing.JList;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 
 import org.jdesktop.swingx.plaf.UIManagerExt;
+import org.jdesktop.xswingx.RecentSearchesEvent.Type;
 
 /**
  * Maintains a list of recent searches and persists this list automatically
@@ -27,13 +63,73 @@ import org.jdesktop.swingx.plaf.UIManagerExt;
  * 
  */
 public class RecentSearches implements ActionListener {
-	private Preferences prefsNode;
+	/**
+	 * Accesses the preferences backing store. All loads and saves are executed
+	 * in order on this single thread, so they never block the caller. The
+	 * thread does not keep the JVM alive, but pending saves are completed and
+	 * flushed on shutdown.
+	 */
+	private static final ExecutorService PREFERENCES_WORKER = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "RecentSearches preferences");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	/**
+	 * The number of seconds to wait for pending saves on shutdown.
+	 */
+	private static final int SHUTDOWN_TIMEOUT = 5;
+
+	static {
+		try {
+			Runtime.getRuntime().addShutdownHook(new Thread("RecentSearches shutdown") {
+				public void run() {
+					PREFERENCES_WORKER.shutdown();
+					try {
+						PREFERENCES_WORKER.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+				}
+			});
+		} catch (AccessControlException ace) {
+			Logger.getLogger(RecentSearches.class.getName()).warning(
+					"cannot add shutdown hook. recent searches saved right before exit may be lost.");
+		}
+	}
+
+	private final boolean persistent;
 
-	private int maxRecents = 5;
+	private volatile Preferences prefsNode;
 
-	private List<String> recentSearches = new ArrayList<String>();
+	private volatile boolean loading;
 
-	private List<ChangeListener> listeners = new ArrayList<ChangeListener>();
+	private volatile boolean clearedWhileLoading;
+
+	private volatile int maxRecents = 5;
+
+	private boolean filteringPopup;
+
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(new String[0], 0));
+
+	private final AtomicBoolean savePending = new AtomicBoolean();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private final Queue<PendingEvent> pendingEvents = new ConcurrentLinkedQueue<PendingEvent>();
+
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+	/**
+	 * The version of the last event delivered to the listeners. Only accessed
+	 * on the event dispatch thread, once the list has been constructed.
+	 */
+	private long dispatchedVersion;
+
+	private boolean dispatching;
 
 	/**
 	 * Creates a list of recent searches and uses <code>saveName</code> to
@@ -62,6 +158,82 @@ public class RecentSearches implements ActionListener {
 	 *            persisted
 	 */
 	public RecentSearches(Preferences prefs, String saveName) {
+		this(prefs, saveName, false);
+	}
+
+	/**
+	 * Creates a list of recent searches and uses <code>saveName</code> to
+	 * persist this list under the <code>prefs</code> node. Existing entries
+	 * will be loaded automatically.
+	 * 
+	 * If <code>loadInBackground</code> is <code>true</code>, the preferences
+	 * backing store is accessed on a background thread and the loaded entries
+	 * are merged as soon as they are available. Searches
+	 * {@link #put(String) put} in the meantime are kept in front of the loaded
+	 * entries. This avoids blocking the event dispatch thread, when creating
+	 * search fields.
+	 * 
+	 * @see #isLoading()
+	 * @param prefsNode
+	 *            the preferences node under which this list will be persisted.
+	 *            If prefsNode is <code>null</code> the preferences node will
+	 *            be set to the user root node
+	 * @param saveName
+	 *            a unique name for saving this list of recent searches. If
+	 *            saveName is <code>null</code>, the list will not be
+	 *            persisted
+	 * @param loadInBackground
+	 *            <code>true</code> to load existing entries on a background
+	 *            thread
+	 */
+	public RecentSearches(final Preferences prefs, final String saveName, final boolean loadInBackground) {
+		persistent = saveName != null;
+		if (!persistent) {
+			return;
+		}
+
+		loading = loadInBackground;
+		FutureTask<Object> load = new FutureTask<Object>(new Runnable() {
+			public void run() {
+				prefsNode = getPrefsNode(prefs, saveName);
+				merge(load(prefsNode), loadInBackground);
+			}
+		}, null);
+		execute(load);
+		if (!loadInBackground) {
+			// wait for pending saves of other lists with the same name
+			try {
+				load.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+			// the entries have been merged silently, so no event is pending
+			dispatchedVersion = state.get().version;
+		}
+	}
+
+	/**
+	 * Executes <code>task</code> on the {@link #PREFERENCES_WORKER}, or on the
+	 * calling thread, if the worker has already been shut down.
+	 */
+	private static void execute(Runnable task) {
+		try {
+			PREFERENCES_WORKER.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	private Preferences getPrefsNode(Preferences prefs, String saveName) {
 		if (prefs == null) {
 			try {
 				prefs = Preferences.userRoot();
@@ -69,42 +241,122 @@ public class RecentSearches implements ActionListener {
 				// disable persistency, if we aren't allowed to access
 				// preferences.
 				Logger.getLogger(getClass().getName()).warning("cannot acces preferences. persistency disabled.");
+				return null;
 			}
 		}
-
-		if (prefs != null && saveName != null) {
-			this.prefsNode = prefs.node(saveName);
-			load();
-		}
+		return prefs.node(saveName);
 	}
 
-	private void load() {
+	private static String[] load(Preferences prefsNode) {
+		if (prefsNode == null) {
+			return new String[0];
+		}
 		// load persisted entries
 		try {
-			String[] recent = new String[prefsNode.keys().length];
-			for (String key : prefsNode.keys()) {
+			String[] keys = prefsNode.keys();
+			String[] recent = new String[keys.length];
+			for (String key : keys) {
 				recent[prefsNode.getInt(key, -1)] = key;
 			}
-			recentSearches.addAll(Arrays.asList(recent));
+			return recent;
 		} catch (Exception ex) {
 			// ignore
+			return new String[0];
 		}
 	}
 
-	private void save() {
-		if (prefsNode == null) {
-			return;
-		}
+	/**
+	 * Merges the loaded entries behind the entries added in the meantime.
+	 * Saves scheduled in the meantime are executed after this method returned,
+	 * so they will persist the merged list.
+	 */
+	private void merge(String[] loaded, boolean notify) {
+		State current;
+		State updated;
+		List<RecentSearchesEvent> events;
+		do {
+			current = state.get();
+			updated = null;
+			events = null;
+			if (clearedWhileLoading) {
+				break;
+			}
 
-		try {
-			prefsNode.clear();
-		} catch (BackingStoreException e) {
-			// ignore
+			List<String> merged = new ArrayList<String>(Arrays.asList(current.searches));
+			events = new ArrayList<RecentSearchesEvent>();
+			for (String searchString : loaded) {
+				if (merged.size() >= getMaxRecents()) {
+					break;
+				}
+				if (searchString != null && !merged.contains(searchString)) {
+					merged.add(searchString);
+					events.add(createEvent(Type.INSERTED, searchString, merged.size() - 1, -1, merged
+							.toArray(new String[merged.size()])));
+				}
+			}
+			if (events.isEmpty()) {
+				break;
+			}
+			updated = new State(merged.toArray(new String[merged.size()]), current.version + events.size());
+		} while (!state.compareAndSet(current, updated));
+
+		loading = false;
+		clearedWhileLoading = false;
+
+		if (notify && updated != null) {
+			for (int i = 0; i < events.size(); i++) {
+				fireChangeEvent(events.get(i), current.version + i + 1);
+			}
 		}
+	}
+
+	/**
+	 * Returns <code>true</code> while existing entries are being loaded in the
+	 * background.
+	 * 
+	 * @see #RecentSearches(Preferences, String, boolean)
+	 * @return <code>true</code> while existing entries are being loaded
+	 */
+	public boolean isLoading() {
+		return loading;
+	}
 
-		int i = 0;
-		for (String search : recentSearches) {
-			prefsNode.putInt(search, i++);
+	/**
+	 * Schedules saving the current list. Saves which have not started yet are
+	 * coalesced.
+	 */
+	private void save() {
+		if (persistent && savePending.compareAndSet(false, true)) {
+			execute(new Runnable() {
+				public void run() {
+					savePending.set(false);
+					Preferences node = prefsNode;
+					if (node == null) {
+						return;
+					}
+
+					try {
+						node.clear();
+					} catch (BackingStoreException e) {
+						// ignore
+					}
+
+					String[] searches = state.get().searches;
+					for (int i = 0; i < searches.length; i++) {
+						node.putInt(searches[i], i);
+					}
+
+					if (PREFERENCES_WORKER.isShutdown()) {
+						// the preferences may already have been synced for
+						// the last time
+						try {
+							node.flush();
+						} catch (BackingStoreException e) {
+							// ignore
+						}
+					}
+				}
+			});
 		}
 	}
 
@@ -117,6 +369,10 @@ public class RecentSearches implements ActionListener {
 	 * If the number of elements exceeds the maximum number of entries, the last
 	 * entry will be removed.
 	 * 
+	 * This method may be called from any thread. It never blocks: the list is
+	 * updated atomically, while persisting the list and notifying the
+	 * listeners happens asynchronously.
+	 * 
 	 * @see #getMaxRecents()
 	 * @param searchString
 	 *            the search string to add
@@ -126,25 +382,54 @@ public class RecentSearches implements ActionListener {
 			return;
 		}
 
-		int lastIndex = recentSearches.indexOf(searchString);
-		if (lastIndex != -1) {
-			recentSearches.remove(lastIndex);
-		}
-		recentSearches.add(0, searchString);
-		if (getLength() > getMaxRecents()) {
-			recentSearches.remove(recentSearches.size() - 1);
-		}
+		State current;
+		State updated;
+		RecentSearchesEvent moved;
+		RecentSearchesEvent removed;
+		do {
+			current = state.get();
+			String[] searches = current.searches;
+			int lastIndex = Arrays.asList(searches).indexOf(searchString);
+
+			String[] front = new String[lastIndex == -1 ? searches.length + 1 : searches.length];
+			front[0] = searchString;
+			for (int i = 0, j = 1; i < searches.length; i++) {
+				if (i != lastIndex) {
+					front[j++] = searches[i];
+				}
+			}
+
+			if (lastIndex != -1) {
+				moved = createEvent(Type.MOVED_TO_FRONT, searchString, 0, lastIndex, front);
+			} else {
+				moved = createEvent(Type.INSERTED, searchString, 0, -1, front);
+			}
+
+			String[] trimmed = front;
+			removed = null;
+			if (front.length > getMaxRecents()) {
+				int index = front.length - 1;
+				trimmed = new String[index];
+				System.arraycopy(front, 0, trimmed, 0, index);
+				removed = createEvent(Type.REMOVED, front[index], index, index, trimmed);
+			}
+			updated = new State(trimmed, current.version + (removed == null ? 1 : 2));
+		} while (!state.compareAndSet(current, updated));
 		save();
-		fireChangeEvent();
+
+		fireChangeEvent(moved, current.version + 1);
+		if (removed != null) {
+			fireChangeEvent(removed, current.version + 2);
+		}
 	}
 
 	/**
-	 * Returns all recent searches in this list.
+	 * Returns a snapshot of all recent searches in this list.
 	 * 
 	 * @return the recent searches
 	 */
 	public String[] getRecentSearches() {
-		return recentSearches.toArray(new String[] {});
+		return state.get().searches.clone();
 	}
 
 	/**
@@ -153,16 +438,26 @@ public class RecentSearches implements ActionListener {
 	 * @return number of recent searches
 	 */
 	public int getLength() {
-		return recentSearches.size();
+		return state.get().searches.length;
 	}
 
 	/**
 	 * Remove all recent searches.
 	 */
 	public void removeAll() {
-		recentSearches.clear();
+		if (loading) {
+			clearedWhileLoading = true;
+		}
+
+		State current;
+		State updated;
+		do {
+			current = state.get();
+			updated = new State(new String[0], current.version + 1);
+		} while (!state.compareAndSet(current, updated));
 		save();
-		fireChangeEvent();
+
+		fireChangeEvent(createEvent(Type.CLEARED, null, -1, -1, updated.searches), updated.version);
 	}
 
 	/**
@@ -187,14 +482,55 @@ public class RecentSearches implements ActionListener {
 	}
 
 	/**
-	 * Add a change listener. A {@link ChangeEvent} will be fired whenever a
-	 * search is added or removed.
+	 * Returns <code>true</code> if a {@link RecentSearchesListPopup} is used
+	 * instead of a {@link RecentSearchesPopup}.
+	 * 
+	 * @see #setFilteringPopup(boolean)
+	 * @return <code>true</code> if a filtering list popup is used
+	 */
+	public boolean isFilteringPopup() {
+		return filteringPopup;
+	}
+
+	/**
+	 * Set whether a {@link RecentSearchesListPopup} should be used instead of
+	 * a {@link RecentSearchesPopup}. The list popup renders the recent
+	 * searches in a {@link JList} and filters them against the search field's
+	 * text, which scales to large numbers of recent searches. Popup menus
+	 * already installed by this object are replaced.
+	 * 
+	 * @see #createPopupMenu(JTextField)
+	 * @param filteringPopup
+	 *            <code>true</code> to use a filtering list popup
+	 */
+	public void setFilteringPopup(boolean filteringPopup) {
+		if (this.filteringPopup == filteringPopup) {
+			return;
+		}
+		this.filteringPopup = filteringPopup;
+
+		for (ChangeListener l : getChangeListeners()) {
+			JTextField searchField = getPopupSearchField(l);
+			if (searchField != null) {
+				uninstallPopup((JPopupMenu) l);
+				NativeSearchFieldSupport.setFindPopupMenu(searchField, createPopupMenu(searchField));
+			}
+		}
+	}
+
+	/**
+	 * Add a change listener. A {@link RecentSearchesEvent} will be fired on
+	 * the event dispatch thread whenever a search is added, moved or removed,
+	 * regardless of the thread that changed the list. When many changes are
+	 * pending, they are coalesced into a single event of type
+	 * {@link Type#CHANGED}. Only changes made after <code>l</code> has been
+	 * added are delivered to <code>l</code>.
 	 * 
 	 * @param l
 	 *            the {@link ChangeListener}
 	 */
 	public void addChangeListener(ChangeListener l) {
-		listeners.add(l);
+		listeners.add(new Listener(l, state.get().version));
 	}
 
 	/**
@@ -204,7 +540,12 @@ public class RecentSearches implements ActionListener {
 	 *            a registered {@link ChangeListener}
 	 */
 	public void removeChangeListener(ChangeListener l) {
-		listeners.remove(l);
+		for (Listener listener : listeners) {
+			if (listener.listener == l) {
+				listeners.remove(listener);
+				return;
+			}
+		}
 	}
 
 	/**
@@ -213,14 +554,92 @@ public class RecentSearches implements ActionListener {
 	 * @return all registered {@link ChangeListener}s
 	 */
 	public ChangeListener[] getChangeListeners() {
-		return listeners.toArray(new ChangeListener[] {});
+		List<ChangeListener> result = new ArrayList<ChangeListener>();
+		for (Listener listener : listeners) {
+			result.add(listener.listener);
+		}
+		return result.toArray(new ChangeListener[result.size()]);
 	}
 
-	private void fireChangeEvent() {
-		ChangeEvent e = new ChangeEvent(this);
+	private RecentSearchesEvent createEvent(Type type, String searchString, int index, int fromIndex,
+			String[] searches) {
+		return new RecentSearchesEvent(this, type, searchString, index, fromIndex, searches);
+	}
 
-		for (ChangeListener l : listeners) {
-			l.stateChanged(e);
+	/**
+	 * Queues <code>e</code> and delivers it on the event dispatch thread.
+	 * Events are delivered in the order of their <code>version</code>, which
+	 * is the order in which the changes have been applied.
+	 */
+	private void fireChangeEvent(RecentSearchesEvent e, long version) {
+		pendingEvents.add(new PendingEvent(e, version));
+		if (SwingUtilities.isEventDispatchThread()) {
+			dispatchChangeEvents();
+		} else if (dispatchScheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					dispatchScheduled.set(false);
+					dispatchChangeEvents();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Delivers all pending events. A single {@link Type#CHANGED} event is
+	 * delivered instead, if there are more pending events than recent
+	 * searches, or if an event has not been queued yet by a concurrent
+	 * producer. Such a late event will be dropped later on, as it is already
+	 * included in the coalesced event.
+	 */
+	private void dispatchChangeEvents() {
+		if (dispatching) {
+			// events queued by listeners are delivered by the outer call
+			return;
+		}
+		dispatching = true;
+		try {
+			List<PendingEvent> batch = new ArrayList<PendingEvent>();
+			while (true) {
+				batch.clear();
+				for (PendingEvent p = pendingEvents.poll(); p != null; p = pendingEvents.poll()) {
+					if (p.version > dispatchedVersion) {
+						batch.add(p);
+					}
+				}
+				if (batch.isEmpty()) {
+					return;
+				}
+				Collections.sort(batch);
+
+				long first = batch.get(0).version;
+				PendingEvent last = batch.get(batch.size() - 1);
+				boolean complete = first == dispatchedVersion + 1 && last.version - first == batch.size() - 1;
+				dispatchedVersion = last.version;
+
+				String[] searches = last.event.getRecentSearches();
+				if (!complete || (batch.size() > 1 && batch.size() > searches.length)) {
+					notifyListeners(new RecentSearchesEvent(this, Type.CHANGED, null, -1, -1, searches), last.version);
+				} else {
+					for (PendingEvent p : batch) {
+						notifyListeners(p.event, p.version);
+					}
+				}
+			}
+		} finally {
+			dispatching = false;
+		}
+	}
+
+	/**
+	 * Notifies the listeners, which have been added before the state
+	 * <code>version</code> has been reached.
+	 */
+	private void notifyListeners(ChangeEvent e, long version) {
+		for (Listener l : listeners) {
+			if (l.version < version) {
+				l.listener.stateChanged(e);
+			}
 		}
 	}
 
@@ -236,9 +655,33 @@ public class RecentSearches implements ActionListener {
 	 * @return the recent searches popup menu
 	 */
 	protected JPopupMenu createPopupMenu(JTextField searchField) {
+		if (isFilteringPopup()) {
+			return new RecentSearchesListPopup(this, searchField);
+		}
 		return new RecentSearchesPopup(this, searchField);
 	}
 
+	/**
+	 * Returns the search field of <code>l</code>, if it is a popup menu
+	 * created by this object, otherwise <code>null</code>.
+	 */
+	private JTextField getPopupSearchField(Object l) {
+		if (l instanceof RecentSearchesPopup && ((RecentSearchesPopup) l).recentSearches == this) {
+			return ((RecentSearchesPopup) l).searchField;
+		}
+		if (l instanceof RecentSearchesListPopup && ((RecentSearchesListPopup) l).recentSearches == this) {
+			return ((RecentSearchesListPopup) l).searchField;
+		}
+		return null;
+	}
+
+	private void uninstallPopup(JPopupMenu popup) {
+		removeChangeListener((ChangeListener) popup);
+		if (popup instanceof RecentSearchesListPopup) {
+			((RecentSearchesListPopup) popup).uninstallListeners();
+		}
+	}
+
 	/**
 	 * Install a recent the searches popup menu returned by
 	 * {@link #createPopupMenu(JXSearchField)} on <code>searchField</code>.
@@ -267,8 +710,8 @@ public class RecentSearches implements ActionListener {
 	 */
 	public void uninstall(JXSearchField searchField) {
 		searchField.removeActionListener(this);
-		if (searchField.getFindPopupMenu() instanceof RecentSearchesPopup) {
-			removeChangeListener((ChangeListener) searchField.getFindPopupMenu());
+		if (getPopupSearchField(searchField.getFindPopupMenu()) != null) {
+			uninstallPopup(searchField.getFindPopupMenu());
 			searchField.setFindPopupMenu(null);
 		}
 	}
@@ -286,12 +729,14 @@ public class RecentSearches implements ActionListener {
 	 * {@link RecentSearches#createPopupMenu(JXSearchField)}.
 	 */
 	public static class RecentSearchesPopup extends JPopupMenu implements ActionListener, ChangeListener {
-		private RecentSearches recentSearches;
+		RecentSearches recentSearches;
 
-		private JTextField searchField;
+		JTextField searchField;
 
 		private JMenuItem clear;
 
+		private int itemCount;
+
 		/**
 		 * Creates a new popup menu based on the given {@link RecentSearches}
 		 * and {@link JXSearchField}.
@@ -304,17 +749,17 @@ public class RecentSearches implements ActionListener {
 			this.recentSearches = recentSearches;
 
 			recentSearches.addChangeListener(this);
-			buildMenu();
+			buildMenu(recentSearches.getRecentSearches());
 		}
 
 		/**
 		 * Rebuilds the menu according to the recent searches.
 		 */
-		private void buildMenu() {
-			setVisible(false);
+		private void buildMenu(String[] searchStrings) {
 			removeAll();
+			itemCount = searchStrings.length;
 
-			if (recentSearches.getLength() == 0) {
+			if (itemCount == 0) {
 				JMenuItem noRecent = new JMenuItem(UIManagerExt.getString("SearchField.noRecentsText"));
 				noRecent.setEnabled(false);
 				add(noRecent);
@@ -323,10 +768,8 @@ public class RecentSearches implements ActionListener {
 				recent.setEnabled(false);
 				add(recent);
 
-				for (String searchString : recentSearches.getRecentSearches()) {
-					JMenuItem mi = new JMenuItem(searchString);
-					mi.addActionListener(this);
-					add(mi);
+				for (String searchString : searchStrings) {
+					add(createItem(searchString));
 				}
 
 				addSeparator();
@@ -334,6 +777,70 @@ public class RecentSearches implements ActionListener {
 				clear.addActionListener(this);
 				add(clear);
 			}
+			menuChanged();
+		}
+
+		private JMenuItem createItem(String searchString) {
+			JMenuItem mi = new JMenuItem(searchString);
+			mi.addActionListener(this);
+			return mi;
+		}
+
+		/**
+		 * Applies the change described by <code>e</code> to the existing menu
+		 * items. Recent search items start at index 1, after the title item.
+		 * The menu is rebuilt, if the event does not apply to the current
+		 * items, e.g. because it has been created before the menu.
+		 */
+		private void updateMenu(RecentSearchesEvent e) {
+			switch (e.getType()) {
+			case INSERTED:
+				if (itemCount == 0 || itemCount != e.getRecentSearches().length - 1) {
+					buildMenu(e.getRecentSearches());
+				} else {
+					add(createItem(e.getSearchString()), e.getIndex() + 1);
+					itemCount++;
+					menuChanged();
+				}
+				break;
+			case MOVED_TO_FRONT:
+				if (!isItem(e.getFromIndex(), e.getSearchString())) {
+					buildMenu(e.getRecentSearches());
+				} else if (e.getFromIndex() != e.getIndex()) {
+					Component item = getComponent(e.getFromIndex() + 1);
+					remove(item);
+					add(item, e.getIndex() + 1);
+					menuChanged();
+				}
+				break;
+			case REMOVED:
+				if (itemCount == 1 || !isItem(e.getIndex(), e.getSearchString())) {
+					buildMenu(e.getRecentSearches());
+				} else {
+					remove(e.getIndex() + 1);
+					itemCount--;
+					menuChanged();
+				}
+				break;
+			default:
+				buildMenu(e.getRecentSearches());
+			}
+		}
+
+		private boolean isItem(int index, String searchString) {
+			return index >= 0 && index < itemCount
+					&& searchString.equals(((JMenuItem) getComponent(index + 1)).getText());
+		}
+
+		/**
+		 * Lays out the menu again without closing it, if it is currently
+		 * showing.
+		 */
+		private void menuChanged() {
+			revalidate();
+			if (isVisible()) {
+				pack();
+			}
 		}
 
 		/**
@@ -353,11 +860,476 @@ public class RecentSearches implements ActionListener {
 		}
 
 		/**
-		 * Every time the recent searches fires a {@link ChangeEvent} call
-		 * {@link #buildMenu()} to rebuild the whole menu.
+		 * Every time the recent searches fires a {@link RecentSearchesEvent},
+		 * only the affected menu items are inserted, moved or removed. Any
+		 * other {@link ChangeEvent} rebuilds the whole menu.
+		 */
+		public void stateChanged(ChangeEvent e) {
+			if (e instanceof RecentSearchesEvent) {
+				updateMenu((RecentSearchesEvent) e);
+			} else {
+				buildMenu(recentSearches.getRecentSearches());
+			}
+		}
+	}
+
+	/**
+	 * A popup menu that can be returned by
+	 * {@link RecentSearches#createPopupMenu(JTextField)} instead of a
+	 * {@link RecentSearchesPopup}, when {@link #isFilteringPopup()} returns
+	 * <code>true</code>.
+	 * 
+	 * The recent searches are displayed in a {@link JList}, which only renders
+	 * the visible rows. All rows have the height of a prototype value, so rows
+	 * are never measured. The list is filtered against the search field's text
+	 * while the user types, without rebuilding any components.
+	 */
+	public static class RecentSearchesListPopup extends JPopupMenu implements ActionListener, ChangeListener,
+			DocumentListener, PropertyChangeListener, PopupMenuListener {
+		/**
+		 * The prototype value which determines the width and height of all
+		 * rows.
+		 */
+		private static final String PROTOTYPE_VALUE = "MMMMMMMMMMMMMMMMMMMMMMMMM";
+
+		RecentSearches recentSearches;
+
+		JTextField searchField;
+
+		private final FilteredRecentSearches model = new FilteredRecentSearches();
+
+		private final JList list = new JList(model);
+
+		private final JScrollPane scrollPane = new JScrollPane(list);
+
+		private final JMenuItem noRecent;
+
+		private final JMenuItem clear;
+
+		private final JPopupMenu.Separator separator = new JPopupMenu.Separator();
+
+		private static final int UP = 0;
+
+		private static final int DOWN = 1;
+
+		private static final int ENTER = 2;
+
+		private final KeyStroke[] navigationKeys = { KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0),
+				KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0) };
+
+		/**
+		 * The bindings of the navigation keys in the search field's own input
+		 * map, before they have been replaced.
+		 */
+		private final Object[] previousBindings = new Object[navigationKeys.length];
+
+		private int maxVisibleRows = 10;
+
+		/**
+		 * Creates a new popup menu based on the given {@link RecentSearches}
+		 * and {@link JTextField}.
+		 * 
+		 * @param recentSearches
+		 * @param searchField
+		 */
+		public RecentSearchesListPopup(RecentSearches recentSearches, JTextField searchField) {
+			this.searchField = searchField;
+			this.recentSearches = recentSearches;
+
+			list.setPrototypeCellValue(PROTOTYPE_VALUE);
+			list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+			list.setFocusable(false);
+			ListMouseHandler mouseHandler = new ListMouseHandler();
+			list.addMouseListener(mouseHandler);
+			list.addMouseMotionListener(mouseHandler);
+
+			scrollPane.setBorder(BorderFactory.createEmptyBorder());
+			scrollPane.setFocusable(false);
+
+			noRecent = new JMenuItem(UIManagerExt.getString("SearchField.noRecentsText"));
+			noRecent.setEnabled(false);
+			clear = new JMenuItem(UIManagerExt.getString("SearchField.clearRecentsText"));
+			clear.addActionListener(this);
+
+			add(noRecent);
+			add(scrollPane);
+			add(separator);
+			add(clear);
+
+			recentSearches.addChangeListener(this);
+			searchField.getDocument().addDocumentListener(this);
+			searchField.addPropertyChangeListener("document", this);
+			addPopupMenuListener(this);
+			installKeyBindings();
+		}
+
+		/**
+		 * Binds the up, down and enter keys of the search field to actions,
+		 * which move the list selection and invoke a search for the selected
+		 * row while the popup menu is visible. Otherwise the actions delegate
+		 * to the actions previously bound to these keys.
+		 */
+		private void installKeyBindings() {
+			InputMap inputMap = searchField.getInputMap();
+			List<Object> ownKeys = inputMap.keys() == null ? Collections.emptyList() : Arrays
+					.asList((Object[]) inputMap.keys());
+			for (int i = 0; i < navigationKeys.length; i++) {
+				if (ownKeys.contains(navigationKeys[i])) {
+					previousBindings[i] = inputMap.get(navigationKeys[i]);
+				}
+				NavigationAction action = new NavigationAction(i);
+				inputMap.put(navigationKeys[i], action);
+				searchField.getActionMap().put(action, action);
+			}
+		}
+
+		private void uninstallKeyBindings() {
+			InputMap inputMap = searchField.getInputMap();
+			for (int i = 0; i < navigationKeys.length; i++) {
+				Object binding = inputMap.get(navigationKeys[i]);
+				if (binding instanceof NavigationAction && ((NavigationAction) binding).getPopup() == this) {
+					searchField.getActionMap().remove(binding);
+					if (previousBindings[i] == null) {
+						inputMap.remove(navigationKeys[i]);
+					} else {
+						inputMap.put(navigationKeys[i], previousBindings[i]);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the maximum number of rows displayed without scrolling.
+		 * 
+		 * @return the maximum number of visible rows
+		 */
+		public int getMaxVisibleRows() {
+			return maxVisibleRows;
+		}
+
+		/**
+		 * Set the maximum number of rows displayed without scrolling.
+		 * 
+		 * @param maxVisibleRows
+		 *            the maximum number of visible rows
+		 */
+		public void setMaxVisibleRows(int maxVisibleRows) {
+			this.maxVisibleRows = maxVisibleRows;
+			updateVisibleRows();
+		}
+
+		/**
+		 * Returns the list displaying the filtered recent searches.
+		 * 
+		 * @return the list displaying the filtered recent searches
+		 */
+		public JList getList() {
+			return list;
+		}
+
+		void uninstallListeners() {
+			uninstallKeyBindings();
+			recentSearches.removeChangeListener(this);
+			searchField.getDocument().removeDocumentListener(this);
+			searchField.removePropertyChangeListener("document", this);
+		}
+
+		/**
+		 * Filters the recent searches against the search field's text and
+		 * adjusts the visible components. No components are created.
+		 */
+		private void refilter() {
+			String filter;
+			try {
+				Document doc = searchField.getDocument();
+				filter = doc.getText(0, doc.getLength());
+			} catch (BadLocationException e) {
+				filter = "";
+			}
+			model.setEntries(recentSearches.getRecentSearches(), filter);
+
+			boolean empty = recentSearches.getLength() == 0;
+			noRecent.setVisible(empty);
+			scrollPane.setVisible(!empty);
+			separator.setVisible(!empty);
+			clear.setVisible(!empty);
+			updateVisibleRows();
+		}
+
+		private void updateVisibleRows() {
+			int rows = Math.min(model.getSize(), maxVisibleRows);
+			if (rows != list.getVisibleRowCount()) {
+				list.setVisibleRowCount(rows);
+				if (isVisible()) {
+					pack();
+				}
+			}
+		}
+
+		/**
+		 * Sets the search field's text to the selected recent search and calls
+		 * {@link JTextField#postActionEvent()}.
+		 */
+		private void select(int index) {
+			if (index < 0 || index >= model.getSize()) {
+				return;
+			}
+			String searchString = (String) model.getElementAt(index);
+			setVisible(false);
+			searchField.setText(searchString);
+			searchField.postActionEvent();
+		}
+
+		/**
+		 * Removes all recent searches, if <code>e</code>s source is the clear
+		 * menu item.
+		 */
+		public void actionPerformed(ActionEvent e) {
+			if (e.getSource() == clear) {
+				recentSearches.removeAll();
+			}
+		}
+
+		/**
+		 * Filters the list again, every time the recent searches fire a
+		 * {@link ChangeEvent} while the popup menu is visible.
 		 */
 		public void stateChanged(ChangeEvent e) {
-			buildMenu();
+			if (isVisible()) {
+				refilter();
+			}
+		}
+
+		public void changedUpdate(DocumentEvent e) {
+		}
+
+		public void insertUpdate(DocumentEvent e) {
+			if (isVisible()) {
+				refilter();
+			}
+		}
+
+		public void removeUpdate(DocumentEvent e) {
+			if (isVisible()) {
+				refilter();
+			}
+		}
+
+		/**
+		 * Filters the list once before the popup menu is shown, since it is
+		 * not filtered while the popup menu is hidden.
+		 */
+		public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+			refilter();
+		}
+
+		public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+		}
+
+		public void popupMenuCanceled(PopupMenuEvent e) {
+		}
+
+		/**
+		 * Moves the {@link DocumentListener} when the search field's document
+		 * is replaced.
+		 */
+		public void propertyChange(PropertyChangeEvent evt) {
+			Document doc = (Document) evt.getOldValue();
+			if (doc != null) {
+				doc.removeDocumentListener(this);
+			}
+			doc = (Document) evt.getNewValue();
+			if (doc != null) {
+				doc.addDocumentListener(this);
+			}
+			if (isVisible()) {
+				refilter();
+			}
+		}
+
+		/**
+		 * Moves the list selection up or down, or invokes a search for the
+		 * selected row, while the popup menu is visible.
+		 */
+		private final class NavigationAction extends AbstractAction {
+			private final int key;
+
+			NavigationAction(int key) {
+				this.key = key;
+			}
+
+			RecentSearchesListPopup getPopup() {
+				return RecentSearchesListPopup.this;
+			}
+
+			public void actionPerformed(ActionEvent e) {
+				int index = list.getSelectedIndex();
+				if (isVisible() && model.getSize() > 0 && (key != ENTER || index != -1)) {
+					if (key == ENTER) {
+						select(index);
+					} else {
+						index = key == UP ? Math.max(0, index - 1) : Math.min(model.getSize() - 1, index + 1);
+						list.setSelectedIndex(index);
+						list.ensureIndexIsVisible(index);
+					}
+				} else {
+					delegate(e);
+				}
+			}
+
+			/**
+			 * Invokes the action, which is bound to the key by the search
+			 * field's own input map before, or by its UI.
+			 */
+			private void delegate(ActionEvent e) {
+				Object binding = previousBindings[key];
+				InputMap parent = searchField.getInputMap().getParent();
+				if (binding == null && parent != null) {
+					binding = parent.get(navigationKeys[key]);
+				}
+				Action action = binding == null ? null : searchField.getActionMap().get(binding);
+				if (action != null && action.isEnabled()) {
+					action.actionPerformed(e);
+				}
+			}
+		}
+
+		/**
+		 * Selects the row under the mouse and invokes a search when it is
+		 * released, just like a menu item.
+		 */
+		private final class ListMouseHandler extends MouseAdapter {
+			public void mouseMoved(MouseEvent e) {
+				int index = rowAt(e);
+				if (index != list.getSelectedIndex()) {
+					if (index == -1) {
+						list.clearSelection();
+					} else {
+						list.setSelectedIndex(index);
+					}
+				}
+			}
+
+			public void mouseDragged(MouseEvent e) {
+				mouseMoved(e);
+			}
+
+			public void mouseExited(MouseEvent e) {
+				list.clearSelection();
+			}
+
+			public void mouseReleased(MouseEvent e) {
+				select(rowAt(e));
+			}
+
+			private int rowAt(MouseEvent e) {
+				int index = list.locationToIndex(e.getPoint());
+				if (index != -1 && !list.getCellBounds(index, index).contains(e.getPoint())) {
+					return -1;
+				}
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * List model containing the recent searches which contain the filter text,
+	 * ignoring case. Only the indices of the matching entries are stored.
+	 */
+	static final class FilteredRecentSearches extends AbstractListModel {
+		private String[] entries = new String[0];
+
+		private int[] matches = new int[0];
+
+		private int size;
+
+		void setEntries(String[] entries, String filter) {
+			this.entries = entries;
+			if (matches.length < entries.length) {
+				matches = new int[entries.length];
+			}
+			int oldSize = size;
+			size = 0;
+			for (int i = 0; i < entries.length; i++) {
+				if (containsIgnoreCase(entries[i], filter)) {
+					matches[size++] = i;
+				}
+			}
+
+			if (oldSize > size) {
+				fireIntervalRemoved(this, size, oldSize - 1);
+			} else if (size > oldSize) {
+				fireIntervalAdded(this, oldSize, size - 1);
+			}
+			if (oldSize > 0 && size > 0) {
+				fireContentsChanged(this, 0, Math.min(oldSize, size) - 1);
+			}
+		}
+
+		private static boolean containsIgnoreCase(String s, String filter) {
+			int max = s.length() - filter.length();
+			for (int i = 0; i <= max; i++) {
+				if (s.regionMatches(true, i, filter, 0, filter.length())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Object getElementAt(int index) {
+			return entries[matches[index]];
+		}
+
+		public int getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the recent searches. The version is increased
+	 * by the number of events describing the transition to a new snapshot.
+	 */
+	private static final class State {
+		final String[] searches;
+
+		final long version;
+
+		State(String[] searches, long version) {
+			this.searches = searches;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * An event waiting to be delivered on the event dispatch thread.
+	 */
+	private static final class PendingEvent implements Comparable<PendingEvent> {
+		final RecentSearchesEvent event;
+
+		final long version;
+
+		PendingEvent(RecentSearchesEvent event, long version) {
+			this.event = event;
+			this.version = version;
+		}
+
+		public int compareTo(PendingEvent o) {
+			return version < o.version ? -1 : (version == o.version ? 0 : 1);
+		}
+	}
+
+	/**
+	 * A registered {@link ChangeListener} and the state version at the time it
+	 * has been added.
+	 */
+	private static final class Listener {
+		final ChangeListener listener;
+
+		final long version;
+
+		Listener(ChangeListener listener, long version) {
+			this.listener = listener;
+			this.version = version;
 		}
 	}
 }
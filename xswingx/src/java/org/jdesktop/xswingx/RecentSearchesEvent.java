@@ -0,0 +1,135 @@
+package org.jdesktop.xswingx;
+
+import javax.swing.event.ChangeEvent;
+
+/**
+ * A {@link ChangeEvent} fired by {@link RecentSearches}, which describes what
+ * exactly has changed. Listeners can use this information to apply minimal
+ * updates instead of rebuilding everything that depends on the recent
+ * searches.
+ * 
+ * @see RecentSearches#addChangeListener(javax.swing.event.ChangeListener)
+ */
+public class RecentSearchesEvent extends ChangeEvent {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The type of a {@link RecentSearchesEvent}.
+	 */
+	public enum Type {
+		/**
+		 * A search string has been inserted at
+		 * {@link RecentSearchesEvent#getIndex()}. New searches are always
+		 * inserted as the first element.
+		 */
+		INSERTED,
+		/**
+		 * An existing search string has been moved from
+		 * {@link RecentSearchesEvent#getFromIndex()} to the first position.
+		 */
+		MOVED_TO_FRONT,
+		/**
+		 * The search string at {@link RecentSearchesEvent#getIndex()} has been
+		 * removed.
+		 */
+		REMOVED,
+		/**
+		 * All search strings have been removed.
+		 */
+		CLEARED,
+		/**
+		 * Several changes, which are not described individually, e.g. because
+		 * they have been coalesced. {@link RecentSearchesEvent#getRecentSearches()}
+		 * returns the result of all changes.
+		 */
+		CHANGED
+	}
+
+	private final Type type;
+
+	private final String searchString;
+
+	private final int index;
+
+	private final int fromIndex;
+
+	private final String[] recentSearches;
+
+	/**
+	 * Creates a new {@link RecentSearchesEvent}.
+	 * 
+	 * @param source
+	 *            the {@link RecentSearches} that changed
+	 * @param type
+	 *            the type of the change
+	 * @param searchString
+	 *            the affected search string, or <code>null</code> if
+	 *            <code>type</code> is {@link Type#CLEARED} or
+	 *            {@link Type#CHANGED}
+	 * @param index
+	 *            the index of the affected search string after the change, or
+	 *            the index it has been removed from
+	 * @param fromIndex
+	 *            the index of the affected search string before the change
+	 * @param recentSearches
+	 *            all recent searches after the change
+	 */
+	public RecentSearchesEvent(Object source, Type type, String searchString, int index, int fromIndex,
+			String[] recentSearches) {
+		super(source);
+		this.type = type;
+		this.searchString = searchString;
+		this.index = index;
+		this.fromIndex = fromIndex;
+		this.recentSearches = recentSearches;
+	}
+
+	/**
+	 * Returns the type of this event.
+	 * 
+	 * @return the type of this event
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the inserted, moved or removed search string.
+	 * 
+	 * @return the affected search string, or <code>null</code> if all search
+	 *         strings have been removed
+	 */
+	public String getSearchString() {
+		return searchString;
+	}
+
+	/**
+	 * Returns the index of the affected search string after the change. For
+	 * {@link Type#REMOVED} events, this is the index the search string has
+	 * been removed from.
+	 * 
+	 * @return the index of the affected search string
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the index of the affected search string before the change. For
+	 * {@link Type#INSERTED} events, this is -1.
+	 * 
+	 * @return the index of the affected search string before the change
+	 */
+	public int getFromIndex() {
+		return fromIndex;
+	}
+
+	/**
+	 * Returns all recent searches as they were right after this change.
+	 * 
+	 * @return the recent searches after this change
+	 */
+	public String[] getRecentSearches() {
+		return recentSearches.clone();
+	}
+}
@@ -0,0 +1,323 @@
+package org.jdesktop.xswingx;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Caches the results of searches, which are contained in a list of
+ * {@link RecentSearches}. When a recent search is repeated, e.g. by selecting
+ * it in the recent searches popup menu, the cached results are shown
+ * immediately, while the search is run again in the background. The fresh
+ * results replace the cached ones as soon as they are available.
+ * 
+ * Results are only cached as long as their search string is contained in the
+ * recent searches, and at most {@link #getMaxEntries()} results are cached.
+ * 
+ * <pre>
+ * SearchResultCache&lt;List&lt;Item&gt;&gt; cache = new SearchResultCache&lt;List&lt;Item&gt;&gt;(searchField
+ * 		.getRecentSearches(), provider, handler);
+ * cache.install(searchField);
+ * </pre>
+ * 
+ * All methods have to be called on the event dispatch thread. Only
+ * {@link SearchProvider#search(String)} is called on a background thread.
+ * 
+ * @param <R>
+ *            the type of the search results
+ */
+public class SearchResultCache<R> implements ActionListener, ChangeListener {
+	/**
+	 * Runs the searches of all caches, which have not been given an
+	 * {@link Executor}.
+	 */
+	private static final Executor SEARCHER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "SearchResultCache searcher");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/**
+	 * Computes the results of a search.
+	 * 
+	 * @param <R>
+	 *            the type of the search results
+	 */
+	public interface SearchProvider<R> {
+		/**
+		 * Runs the search for <code>searchString</code>. This method is
+		 * called on a background thread.
+		 * 
+		 * @param searchString
+		 *            the search string
+		 * @return the search results
+		 * @throws Exception
+		 *             if the search failed
+		 */
+		R search(String searchString) throws Exception;
+	}
+
+	/**
+	 * Displays the results of a search.
+	 * 
+	 * @param <R>
+	 *            the type of the search results
+	 */
+	public interface ResultHandler<R> {
+		/**
+		 * Displays the results of a search. This method is called on the
+		 * event dispatch thread.
+		 * 
+		 * @param searchString
+		 *            the search string
+		 * @param results
+		 *            the search results
+		 * @param cached
+		 *            <code>true</code> if the results have been cached and a
+		 *            refresh is running, <code>false</code> if they are fresh
+		 */
+		void showResults(String searchString, R results, boolean cached);
+	}
+
+	private final RecentSearches recentSearches;
+
+	private final SearchProvider<R> provider;
+
+	private final ResultHandler<R> handler;
+
+	private final Executor executor;
+
+	private int maxEntries = 10;
+
+	private final LinkedHashMap<String, R> results = new LinkedHashMap<String, R>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, R> eldest) {
+			return size() > getMaxEntries();
+		}
+	};
+
+	/**
+	 * Increased by every search. Results of earlier searches are discarded.
+	 */
+	private int generation;
+
+	/**
+	 * The last search passed to the executor. It is cancelled, if it has not
+	 * started yet, when another search is started.
+	 */
+	private FutureTask<Object> pending;
+
+	private String pendingSearchString;
+
+	/**
+	 * Creates a cache for the results of the searches in
+	 * <code>recentSearches</code>, which runs the searches on a shared
+	 * background thread.
+	 * 
+	 * @param recentSearches
+	 *            the recent searches, whose results should be cached
+	 * @param provider
+	 *            runs the searches
+	 * @param handler
+	 *            displays the search results
+	 */
+	public SearchResultCache(RecentSearches recentSearches, SearchProvider<R> provider, ResultHandler<R> handler) {
+		this(recentSearches, provider, handler, SEARCHER);
+	}
+
+	/**
+	 * Creates a cache for the results of the searches in
+	 * <code>recentSearches</code>, which runs the searches using
+	 * <code>executor</code>.
+	 * 
+	 * @param recentSearches
+	 *            the recent searches, whose results should be cached
+	 * @param provider
+	 *            runs the searches
+	 * @param handler
+	 *            displays the search results
+	 * @param executor
+	 *            executes the searches
+	 */
+	public SearchResultCache(RecentSearches recentSearches, SearchProvider<R> provider, ResultHandler<R> handler,
+			Executor executor) {
+		this.recentSearches = recentSearches;
+		this.provider = provider;
+		this.handler = handler;
+		this.executor = executor;
+		recentSearches.addChangeListener(this);
+	}
+
+	/**
+	 * Returns the maximum number of cached results.
+	 * 
+	 * @return the maximum number of cached results
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Sets the maximum number of cached results. If more results are cached,
+	 * the least recently used results are removed.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of cached results
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+		for (Iterator<String> it = results.keySet().iterator(); results.size() > maxEntries;) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Returns the cached results of <code>searchString</code>.
+	 * 
+	 * @param searchString
+	 *            the search string
+	 * @return the cached results, or <code>null</code> if no results are
+	 *         cached
+	 */
+	public R getCachedResults(String searchString) {
+		return results.get(searchString);
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	public void clear() {
+		results.clear();
+	}
+
+	/**
+	 * Shows the cached results of <code>searchString</code>, if there are
+	 * any, and runs the search in the background. The fresh results are shown
+	 * once they are available, unless another search has been started in the
+	 * meantime.
+	 * 
+	 * Only one search is pending at a time: a search, which has not started
+	 * yet, is cancelled, when another search is started. Nothing happens, if
+	 * the search for <code>searchString</code> is still pending, e.g. when
+	 * the find action of a search field fires for a search string, which an
+	 * instant search is already running for.
+	 * 
+	 * @param searchString
+	 *            the search string
+	 */
+	public void search(final String searchString) {
+		if (pending != null && !pending.isDone()) {
+			if (searchString.equals(pendingSearchString)) {
+				return;
+			}
+			pending.cancel(false);
+		}
+
+		final int searchGeneration = ++generation;
+
+		R cached = results.get(searchString);
+		if (cached != null) {
+			handler.showResults(searchString, cached, true);
+		}
+
+		pendingSearchString = searchString;
+		pending = new FutureTask<Object>(new Runnable() {
+			public void run() {
+				final R fresh;
+				try {
+					fresh = provider.search(searchString);
+				} catch (Exception e) {
+					Logger.getLogger(SearchResultCache.class.getName()).log(Level.WARNING,
+							"search failed: " + searchString, e);
+					return;
+				}
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						searched(searchGeneration, searchString, fresh);
+					}
+				});
+			}
+		}, null);
+		executor.execute(pending);
+	}
+
+	private void searched(int searchGeneration, String searchString, R fresh) {
+		if (fresh != null && Arrays.asList(recentSearches.getRecentSearches()).contains(searchString)) {
+			results.put(searchString, fresh);
+		}
+		if (searchGeneration == generation) {
+			handler.showResults(searchString, fresh, false);
+		}
+	}
+
+	/**
+	 * Calls {@link #search(String)} with the {@link ActionEvent}s action
+	 * command as the search string.
+	 */
+	public void actionPerformed(ActionEvent e) {
+		search(e.getActionCommand());
+	}
+
+	/**
+	 * Removes the cached results of searches, which are no longer contained in
+	 * the recent searches.
+	 */
+	public void stateChanged(ChangeEvent e) {
+		List<String> searches = Arrays.asList(recentSearches.getRecentSearches());
+		if (e instanceof RecentSearchesEvent) {
+			searches = Arrays.asList(((RecentSearchesEvent) e).getRecentSearches());
+		}
+		results.keySet().retainAll(searches);
+	}
+
+	/**
+	 * Runs a search whenever <code>searchField</code> fires an
+	 * {@link ActionEvent}.
+	 * 
+	 * @param searchField
+	 *            the search field
+	 */
+	public void install(JTextField searchField) {
+		searchField.addActionListener(this);
+	}
+
+	/**
+	 * Stops running searches when <code>searchField</code> fires an
+	 * {@link ActionEvent}.
+	 * 
+	 * @param searchField
+	 *            the search field
+	 */
+	public void uninstall(JTextField searchField) {
+		searchField.removeActionListener(this);
+	}
+
+	/**
+	 * Stops caching the results of the recent searches, cancels a pending search
+	 * and removes all cached results.
+	 */
+	public void dispose() {
+		recentSearches.removeChangeListener(this);
+		if (pending != null) {
+			pending.cancel(false);
+		}
+		clear();
+	}
+}
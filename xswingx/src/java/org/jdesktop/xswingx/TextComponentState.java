@@ -0,0 +1,170 @@
+package org.jdesktop.xswingx;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Insets;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JPopupMenu;
+import javax.swing.text.JTextComponent;
+
+import org.jdesktop.xswingx.BuddySupport.Position;
+import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+
+/**
+ * Holds the prompt, buddy and native search field settings of a text
+ * component in typed fields, so they can be read with a single client
+ * property lookup. The client properties set by {@link PromptSupport},
+ * {@link BuddySupport} and {@link NativeSearchFieldSupport} remain the
+ * public representation of the settings: The setters of these classes update
+ * both, and client properties, which are put directly, are copied to the
+ * fields by a {@link PropertyChangeListener}. Only the setters create the
+ * state, the getters read the client properties, as long as it does not
+ * exist, so reading a setting never fires a property change.
+ */
+final class TextComponentState implements PropertyChangeListener {
+	private final JTextComponent textComponent;
+
+	String prompt;
+
+	Color foreground;
+
+	Color background;
+
+	FocusBehavior focusBehavior;
+
+	Integer fontStyle;
+
+	RenderingMode renderingMode;
+
+	Insets outerMargin;
+
+	Object textFieldVariant;
+
+	JPopupMenu findPopupMenu;
+
+	ActionListener findAction;
+
+	ActionListener cancelAction;
+
+	private List<Component> left;
+
+	private List<Component> leftView;
+
+	private List<Component> right;
+
+	private List<Component> rightView;
+
+	private TextComponentState(JTextComponent textComponent) {
+		this.textComponent = textComponent;
+	}
+
+	/**
+	 * Returns the state of <code>textComponent</code>, or <code>null</code>
+	 * if it has not been created yet.
+	 */
+	static TextComponentState peek(JTextComponent textComponent) {
+		return (TextComponentState) textComponent.getClientProperty(TextComponentState.class);
+	}
+
+	/**
+	 * Returns the state of <code>textComponent</code>, creating it first, if
+	 * necessary. Only called by setters, since creating the state puts a
+	 * client property.
+	 */
+	static TextComponentState get(JTextComponent textComponent) {
+		TextComponentState state = peek(textComponent);
+		if (state == null) {
+			state = new TextComponentState(textComponent);
+			textComponent.putClientProperty(TextComponentState.class, state);
+			textComponent.addPropertyChangeListener(state);
+			state.prompt = (String) textComponent.getClientProperty(PromptSupport.PROMPT);
+			state.foreground = (Color) textComponent.getClientProperty(PromptSupport.FOREGROUND);
+			state.background = (Color) textComponent.getClientProperty(PromptSupport.BACKGROUND);
+			state.focusBehavior = (FocusBehavior) textComponent.getClientProperty(PromptSupport.FOCUS_BEHAVIOR);
+			state.fontStyle = (Integer) textComponent.getClientProperty(PromptSupport.FONT_STYLE);
+			state.renderingMode = (RenderingMode) textComponent.getClientProperty(PromptSupport.RENDERING_MODE);
+			state.outerMargin = (Insets) textComponent.getClientProperty(BuddySupport.OUTER_MARGIN);
+			state.textFieldVariant = textComponent
+					.getClientProperty(NativeSearchFieldSupport.MAC_TEXT_FIELD_VARIANT_PROPERTY);
+			state.findPopupMenu = (JPopupMenu) textComponent
+					.getClientProperty(NativeSearchFieldSupport.FIND_POPUP_PROPERTY);
+			state.findAction = (ActionListener) textComponent
+					.getClientProperty(NativeSearchFieldSupport.FIND_ACTION_PROPERTY);
+			state.cancelAction = (ActionListener) textComponent
+					.getClientProperty(NativeSearchFieldSupport.CANCEL_ACTION_PROPERTY);
+			state.setBuddies(Position.LEFT, textComponent.getClientProperty(Position.LEFT));
+			state.setBuddies(Position.RIGHT, textComponent.getClientProperty(Position.RIGHT));
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the mutable list of buddies at <code>pos</code>, or
+	 * <code>null</code> if none has been set.
+	 */
+	List<Component> getBuddyList(Position pos) {
+		return pos == Position.LEFT ? left : right;
+	}
+
+	/**
+	 * Returns an unmodifiable view of the buddies at <code>pos</code>, or
+	 * <code>null</code> if none has been set.
+	 */
+	List<Component> getBuddyView(Position pos) {
+		return pos == Position.LEFT ? leftView : rightView;
+	}
+
+	@SuppressWarnings("unchecked")
+	void setBuddies(Position pos, Object buddies) {
+		List<Component> list = (List<Component>) buddies;
+		List<Component> view = list == null ? null : Collections.unmodifiableList(list);
+		if (pos == Position.LEFT) {
+			left = list;
+			leftView = view;
+		} else {
+			right = list;
+			rightView = view;
+		}
+	}
+
+	/**
+	 * Copies a client property, which has been put directly, to its field.
+	 */
+	public void propertyChange(PropertyChangeEvent evt) {
+		String name = evt.getPropertyName();
+		Object value = evt.getNewValue();
+		if (PromptSupport.PROMPT.equals(name)) {
+			prompt = (String) value;
+		} else if (PromptSupport.FOREGROUND.equals(name)) {
+			foreground = (Color) value;
+		} else if (PromptSupport.BACKGROUND.equals(name)) {
+			background = (Color) value;
+		} else if (PromptSupport.FOCUS_BEHAVIOR.equals(name)) {
+			focusBehavior = (FocusBehavior) value;
+		} else if (PromptSupport.FONT_STYLE.equals(name)) {
+			fontStyle = (Integer) value;
+		} else if (PromptSupport.RENDERING_MODE.equals(name)) {
+			renderingMode = (RenderingMode) value;
+		} else if (BuddySupport.OUTER_MARGIN.equals(name)) {
+			outerMargin = (Insets) value;
+		} else if (NativeSearchFieldSupport.MAC_TEXT_FIELD_VARIANT_PROPERTY.equals(name)) {
+			textFieldVariant = value;
+		} else if (NativeSearchFieldSupport.FIND_POPUP_PROPERTY.equals(name)) {
+			findPopupMenu = (JPopupMenu) value;
+		} else if (NativeSearchFieldSupport.FIND_ACTION_PROPERTY.equals(name)) {
+			findAction = (ActionListener) value;
+		} else if (NativeSearchFieldSupport.CANCEL_ACTION_PROPERTY.equals(name)) {
+			cancelAction = (ActionListener) value;
+		} else if (Position.LEFT.toString().equals(name)) {
+			setBuddies(Position.LEFT, textComponent.getClientProperty(Position.LEFT));
+		} else if (Position.RIGHT.toString().equals(name)) {
+			setBuddies(Position.RIGHT, textComponent.getClientProperty(Position.RIGHT));
+		}
+	}
+}
@@ -1,14 +1,25 @@
 package org.jdesktop.xswingx.plaf;
 
 import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.HashSet;
 import java.util.Set;
 
 import javax.swing.JComponent;
 
+/**
+ * Listens for "UI" property changes of the installed components. The
+ * components are only weakly referenced and compared by identity, so a shared
+ * handler does not keep components, which are not used anymore, from being
+ * garbage collected.
+ */
 public abstract class AbstractUIChangeHandler implements PropertyChangeListener {
 	//prevent double installation.
-	private final Set<JComponent> installed = new HashSet<JComponent>();
+	private final Set<ComponentReference> installed = new HashSet<ComponentReference>();
+
+	private final ReferenceQueue<JComponent> queue = new ReferenceQueue<JComponent>();
 	
 	public void install(JComponent c){
 		if(isInstalled(c)){
@@ -16,15 +27,63 @@ public abstract class AbstractUIChangeHandler implements PropertyChangeListener
 		}
 		
 		c.addPropertyChangeListener("UI", this);
-		installed.add(c);
+		installed.add(new ComponentReference(c, queue));
 	}
 	
 	public boolean isInstalled(JComponent c) {
-		return installed.contains(c);
+		expungeStaleReferences();
+		return installed.contains(new ComponentReference(c, null));
 	}
 
 	public void uninstall(JComponent c){
 		c.removePropertyChangeListener("UI", this);
-		installed.remove(c);
+		expungeStaleReferences();
+		installed.remove(new ComponentReference(c, null));
+	}
+
+	/**
+	 * Returns the number of installed components, which have not been garbage
+	 * collected yet.
+	 */
+	int getInstalledCount() {
+		expungeStaleReferences();
+		return installed.size();
+	}
+
+	/**
+	 * Removes the references to garbage collected components.
+	 */
+	private void expungeStaleReferences() {
+		for (Reference<? extends JComponent> ref; (ref = queue.poll()) != null;) {
+			installed.remove(ref);
+		}
+	}
+
+	/**
+	 * A weak reference, which is equal to another reference to the same
+	 * component.
+	 */
+	private static final class ComponentReference extends WeakReference<JComponent> {
+		private final int hash;
+
+		ComponentReference(JComponent c, ReferenceQueue<JComponent> queue) {
+			super(c, queue);
+			hash = System.identityHashCode(c);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof ComponentReference)) {
+				return false;
+			}
+			JComponent c = get();
+			return c != null && c == ((ComponentReference) obj).get();
+		}
 	}
-}
\ No newline at end of file
+}
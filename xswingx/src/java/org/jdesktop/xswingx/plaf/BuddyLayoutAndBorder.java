@@ -5,13 +5,14 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Insets;
-import java.awt.LayoutManager;
+import java.awt.LayoutManager2;
 import java.awt.Rectangle;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.border.AbstractBorder;
 import javax.swing.border.Border;
 import javax.swing.plaf.UIResource;
 import javax.swing.plaf.basic.BasicBorders.MarginBorder;
@@ -19,15 +20,36 @@ import javax.swing.plaf.basic.BasicBorders.MarginBorder;
 import org.jdesktop.xswingx.BuddySupport;
 import org.jdesktop.xswingx.BuddySupport.Position;
 
-public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChangeListener, UIResource {
+public class BuddyLayoutAndBorder extends AbstractBorder implements LayoutManager2, PropertyChangeListener,
+		UIResource {
+	private static final long serialVersionUID = 1L;
+
 	private JTextField textField;
 
 	private Border borderDelegate;
 
+	/*
+	 * The memoized preferred layout size and insets. They are cleared whenever
+	 * the text field is invalidated, which includes adding, removing, showing,
+	 * hiding and resizing buddies, or one of its properties changes, like the
+	 * border or margin. They are only stored and trusted while the text field
+	 * is valid, since a buddy does not invalidate an already invalid parent
+	 * again. The insets of the border delegate are trusted as well: if they
+	 * depend on look and feel state, which neither invalidates the text field
+	 * nor fires a property change on it, they are stale until the text field
+	 * is revalidated.
+	 */
+	private Dimension preferredLayoutSize;
+
+	private Insets borderInsets;
+
+	private Insets realBorderInsets;
+
 	/**
 	 * Installs a {@link BuddyLayoutAndBorder} as a layout and border of the
 	 * given text field. Registers a {@link PropertyChangeListener} to wrap any
-	 * subsequently set border on the text field.
+	 * subsequently set border on the text field and to forget the memoized
+	 * preferred layout size and insets.
 	 */
 	protected void install(JTextField textField) {
 		uninstall();
@@ -36,7 +58,7 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 		textField.setLayout(this);
 
 		replaceBorderIfNecessary();
-		textField.addPropertyChangeListener("border", this);
+		textField.addPropertyChangeListener(this);
 	}
 
 	public Border getBorderDelegate() {
@@ -65,11 +87,45 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 	public void addLayoutComponent(String name, Component comp) {
 	}
 
+	/**
+	 * Does nothing.
+	 * 
+	 * @see BuddySupport#add(javax.swing.JComponent, Position, JTextField)
+	 */
+	public void addLayoutComponent(Component comp, Object constraints) {
+	}
+
 	public Dimension minimumLayoutSize(Container parent) {
 		return preferredLayoutSize(parent);
 	}
 
+	/**
+	 * Returns the height of the highest buddy plus the insets of the original
+	 * border and the outer margin. The size is remembered until the text field
+	 * is invalidated or one of its properties changes.
+	 */
 	public Dimension preferredLayoutSize(Container parent) {
+		if (preferredLayoutSize == null || !isCacheValid()) {
+			Dimension d = computePreferredLayoutSize();
+			if (!isCacheValid()) {
+				return d;
+			}
+			preferredLayoutSize = d;
+		}
+		return new Dimension(preferredLayoutSize);
+	}
+
+	private boolean isCacheValid() {
+		return textField != null && textField.isValid();
+	}
+
+	private void invalidateCache() {
+		preferredLayoutSize = null;
+		borderInsets = null;
+		realBorderInsets = null;
+	}
+
+	private Dimension computePreferredLayoutSize() {
 		Dimension d = new Dimension();
 
 		// height of highest buddy.
@@ -101,6 +157,25 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 	public void removeLayoutComponent(Component comp) {
 	}
 
+	public Dimension maximumLayoutSize(Container target) {
+		return new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	public float getLayoutAlignmentX(Container target) {
+		return 0.5f;
+	}
+
+	public float getLayoutAlignmentY(Container target) {
+		return 0.5f;
+	}
+
+	/**
+	 * Forgets the memoized preferred layout size and insets.
+	 */
+	public void invalidateLayout(Container target) {
+		invalidateCache();
+	}
+
 	public void layoutContainer(Container parent) {
 		Rectangle visibleRect = getVisibleRect();
 		Dimension size;
@@ -158,11 +233,42 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 
 	/**
 	 * Returns the {@link Insets} of the original {@link Border} plus the space
-	 * required by the child components.
+	 * required by the child components. The insets are remembered until the
+	 * text field is invalidated or one of its properties changes. Call
+	 * {@link JTextField#revalidate()}, if the insets of the original border
+	 * change otherwise.
 	 * 
 	 * @see javax.swing.border.Border#getBorderInsets(java.awt.Component)
 	 */
 	public Insets getBorderInsets(Component c) {
+		Insets insets = getRememberedBorderInsets();
+		return insets == borderInsets ? (Insets) insets.clone() : insets;
+	}
+
+	/**
+	 * Copies the insets returned by {@link #getBorderInsets(Component)} into
+	 * <code>insets</code>. Used by {@link JTextField#getInsets(Insets)}, so
+	 * the insets are not copied into a new instance whenever the text field is
+	 * painted.
+	 */
+	public Insets getBorderInsets(Component c, Insets insets) {
+		Insets borderInsets = getRememberedBorderInsets();
+		insets.set(borderInsets.top, borderInsets.left, borderInsets.bottom, borderInsets.right);
+		return insets;
+	}
+
+	private Insets getRememberedBorderInsets() {
+		if (borderInsets == null || !isCacheValid()) {
+			Insets insets = computeBorderInsets();
+			if (!isCacheValid()) {
+				return insets;
+			}
+			borderInsets = insets;
+		}
+		return borderInsets;
+	}
+
+	private Insets computeBorderInsets() {
 		Insets insets = null;
 		if (borderDelegate != null) {
 			// Original insets are cloned to make it work in Mac OS X Aqua LnF.
@@ -193,12 +299,26 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 			insets.bottom += outerMargin.bottom;
 		}
 
+		adjustBorderInsets(insets);
 		return insets;
 	}
 
+	/**
+	 * Called whenever the border insets are computed, before they are
+	 * remembered. Override to add space, which is not allocated by visible
+	 * buddies. Only depend on the state of the text field and its buddies, so
+	 * the insets are recomputed when it changes.
+	 * 
+	 * @param insets
+	 *            the computed insets, which may be modified
+	 */
+	protected void adjustBorderInsets(Insets insets) {
+	}
+
 	/**
 	 * Returns the insets of the original border (without the margin! Beware of
-	 * {@link MarginBorder}!).
+	 * {@link MarginBorder}!). The insets are remembered like
+	 * {@link #getBorderInsets(Component)}.
 	 * 
 	 * @return the insets of the border delegate
 	 */
@@ -206,8 +326,19 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 		if (borderDelegate == null) {
 			return null;
 		}
+		if (realBorderInsets == null || !isCacheValid()) {
+			Insets insets = computeRealBorderInsets();
+			if (!isCacheValid()) {
+				return insets;
+			}
+			realBorderInsets = insets;
+		}
+		return (Insets) realBorderInsets.clone();
+	}
 
-		Insets insets = (Insets) borderDelegate.getBorderInsets(textField);
+	private Insets computeRealBorderInsets() {
+		// cloned to not modify shared insets of the delegate
+		Insets insets = (Insets) borderDelegate.getBorderInsets(textField).clone();
 
 		// for some reason, all LnFs add the margin to the insets.
 		// we want the insets without the margin, so substract the margin here!!
@@ -241,12 +372,15 @@ public class BuddyLayoutAndBorder implements LayoutManager, Border, PropertyChan
 	}
 
 	public void propertyChange(PropertyChangeEvent evt) {
-		replaceBorderIfNecessary();
+		invalidateCache();
+		if ("border".equals(evt.getPropertyName())) {
+			replaceBorderIfNecessary();
+		}
 	}
 
 	public void uninstall() {
 		if (textField != null) {
-			textField.removePropertyChangeListener("border", this);
+			textField.removePropertyChangeListener(this);
 			if (textField.getBorder() == this) {
 				textField.setBorder(borderDelegate);
 			}
@@ -30,10 +30,10 @@ public class BuddyTextFieldUI extends PromptTextFieldUI {
 		if (hasMacTextFieldBorder(c)) {
 			Insets borderInsets = layoutAndBorder.getRealBorderInsets();
 
-			borderInsets.left -= MAC_MARGIN.left;
+			int left = borderInsets.left - MAC_MARGIN.left;
 			int height = c.getHeight() - borderInsets.bottom - borderInsets.top + MAC_MARGIN.bottom + MAC_MARGIN.top;
-			int width = c.getWidth() - borderInsets.left - borderInsets.right + MAC_MARGIN.right;
-			g.clipRect(borderInsets.left, borderInsets.top, width, height);
+			int width = c.getWidth() - left - borderInsets.right + MAC_MARGIN.right;
+			g.clipRect(left, borderInsets.top, width, height);
 		}
 		super.paint(g, c);
 	}
@@ -74,7 +74,9 @@ public class BuddyTextFieldUI extends PromptTextFieldUI {
 	}
 
 	/**
-	 * TODO: comment
+	 * Returns the larger of the preferred size of the prompt or text and the
+	 * preferred layout size of the buddies. Both sizes are memoized until a
+	 * relevant property of the text field or its buddies changes.
 	 * 
 	 * @see javax.swing.plaf.ComponentUI#getPreferredSize(javax.swing.JComponent)
 	 */
@@ -0,0 +1,361 @@
+package org.jdesktop.xswingx.plaf;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.text.AttributedString;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingConstants;
+import javax.swing.text.JTextComponent;
+
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+
+/**
+ * Draws the prompt text of a text component directly, as specified by
+ * {@link RenderingMode#DIRECT}. The text is broken into lines and measured
+ * once, and the lines are reused as long as the prompt text, font, font render
+ * context and wrap width do not change. Lines are drawn with
+ * {@link Graphics2D#drawString(String, float, float)}, which, unlike
+ * {@link TextLayout#draw(Graphics2D, float, float)}, reuses the font
+ * information of the graphics instead of allocating it for every line. Lines
+ * are separated by '\n' and aligned inside the insets of the text component,
+ * which include its margin and buddies. The lines of a {@link JTextArea} with
+ * line wrapping enabled are additionally wrapped like its text: at word
+ * boundaries, if its wrap style is word, otherwise at character boundaries.
+ */
+final class DirectPromptRenderer {
+	private static final String DESKTOP_HINTS = "awt/font/desktophints";
+
+	/**
+	 * The text rendering hints of the desktop, which are remembered until
+	 * they change, since {@link Toolkit#getDesktopProperty(String)} returns a
+	 * copy of them. Their keys and values are also stored alternately in an
+	 * array, so they are applied without an iterator.
+	 */
+	private static Map<?, ?> desktopHints;
+
+	private static Object[] desktopHintEntries;
+
+	/**
+	 * The hints of the graphics replaced by the desktop hints while the prompt
+	 * text is drawn.
+	 */
+	private Object[] replacedHints = new Object[0];
+
+	private Font baseFont;
+
+	private Integer fontStyle;
+
+	private Font font;
+
+	private String text;
+
+	private Font layoutFont;
+
+	private FontRenderContext frc;
+
+	private float wrapWidth;
+
+	private boolean wrapStyleWord;
+
+	private String[] lines;
+
+	private float[] advances;
+
+	private float ascent;
+
+	private int lineHeight;
+
+	private final Insets insets = new Insets(0, 0, 0, 0);
+
+	/**
+	 * Paints the prompt of <code>txt</code>.
+	 * 
+	 * @param horizontalAlignment
+	 *            one of the horizontal {@link SwingConstants}
+	 * @param verticalAlignment
+	 *            {@link SwingConstants#TOP} or {@link SwingConstants#CENTER}
+	 */
+	void paint(Graphics g, JTextComponent txt, int horizontalAlignment, int verticalAlignment) {
+		if (txt.isOpaque()) {
+			g.setColor(PromptSupport.getBackground(txt));
+			g.fillRect(0, 0, txt.getWidth(), txt.getHeight());
+		}
+		paintText(g, txt, horizontalAlignment, verticalAlignment);
+	}
+
+	/**
+	 * Paints the prompt text of <code>txt</code> without filling the
+	 * background.
+	 * 
+	 * @see #paint(Graphics, JTextComponent, int, int)
+	 */
+	void paintText(Graphics g, JTextComponent txt, int horizontalAlignment, int verticalAlignment) {
+		String prompt = getPromptText(txt);
+		if (prompt == null || prompt.length() == 0) {
+			return;
+		}
+
+		Graphics2D g2 = (Graphics2D) g;
+		Insets insets = txt.getInsets(this.insets);
+		layout(prompt, getFont(txt), g2.getFontRenderContext(), getWrapWidth(txt, insets), isWrapStyleWord(txt));
+
+		boolean highlight = isHighlighted(txt);
+		Color foreground = getForeground(txt);
+
+		Object[] hints = getDesktopHintEntries();
+		if (replacedHints.length < hints.length / 2) {
+			replacedHints = new Object[hints.length / 2];
+		}
+		for (int i = 0; i < hints.length; i += 2) {
+			RenderingHints.Key key = (RenderingHints.Key) hints[i];
+			replacedHints[i / 2] = g2.getRenderingHint(key);
+			g2.setRenderingHint(key, hints[i + 1]);
+		}
+
+		g2.setFont(layoutFont);
+		int y = getTop(txt, insets, verticalAlignment);
+		for (int i = 0; i < lines.length; i++) {
+			if (lines[i] != null) {
+				int x = getX(txt, insets, horizontalAlignment, advances[i]);
+				if (highlight) {
+					g2.setColor(txt.getSelectionColor());
+					g2.fillRect(x, y, (int) Math.ceil(advances[i]), lineHeight);
+				}
+				g2.setColor(foreground);
+				g2.drawString(lines[i], x, y + ascent);
+			}
+			y += lineHeight;
+		}
+
+		// restore the hints, so they do not affect the caret painted next
+		for (int i = 0; i < hints.length; i += 2) {
+			if (replacedHints[i / 2] != null) {
+				g2.setRenderingHint((RenderingHints.Key) hints[i], replacedHints[i / 2]);
+				replacedHints[i / 2] = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the text rendering hints of the desktop, or <code>null</code>
+	 * if there are none.
+	 */
+	static synchronized Map<?, ?> getDesktopHints() {
+		if (desktopHintEntries == null) {
+			Toolkit toolkit = Toolkit.getDefaultToolkit();
+			toolkit.addPropertyChangeListener(DESKTOP_HINTS, new PropertyChangeListener() {
+				public void propertyChange(PropertyChangeEvent evt) {
+					setDesktopHints((Map<?, ?>) evt.getNewValue());
+				}
+			});
+			setDesktopHints((Map<?, ?>) toolkit.getDesktopProperty(DESKTOP_HINTS));
+		}
+		return desktopHints;
+	}
+
+	private static synchronized Object[] getDesktopHintEntries() {
+		getDesktopHints();
+		return desktopHintEntries;
+	}
+
+	static synchronized void setDesktopHints(Map<?, ?> hints) {
+		List<Object> entries = new ArrayList<Object>();
+		if (hints != null) {
+			for (Map.Entry<?, ?> entry : hints.entrySet()) {
+				if (entry.getKey() instanceof RenderingHints.Key) {
+					entries.add(entry.getKey());
+					entries.add(entry.getValue());
+				}
+			}
+		}
+		desktopHints = hints;
+		desktopHintEntries = entries.toArray();
+	}
+
+	/**
+	 * Returns the bounds of the caret, which is located at the start of the
+	 * first prompt line.
+	 */
+	Rectangle modelToView(JTextComponent txt, int horizontalAlignment, int verticalAlignment) {
+		Font font = getFont(txt);
+		String prompt = getPromptText(txt);
+		if (prompt == null || prompt.length() == 0) {
+			prompt = " ";
+		}
+		FontRenderContext frc = this.frc;
+		if (frc == null) {
+			frc = txt.getFontMetrics(font).getFontRenderContext();
+		}
+		Insets insets = txt.getInsets(this.insets);
+		layout(prompt, font, frc, getWrapWidth(txt, insets), isWrapStyleWord(txt));
+
+		float advance = 0;
+		if (getPromptText(txt) != null && lines[0] != null) {
+			advance = advances[0];
+		}
+		int x = getX(txt, insets, horizontalAlignment, advance);
+		if (!txt.getComponentOrientation().isLeftToRight()) {
+			x += (int) advance;
+		}
+		return new Rectangle(x, getTop(txt, insets, verticalAlignment), 0, lineHeight);
+	}
+
+	/**
+	 * Returns <code>true</code> if the prompt text is rendered as if it was
+	 * selected.
+	 */
+	boolean isHighlighted(JTextComponent txt) {
+		return txt.isFocusOwner() && PromptSupport.getFocusBehavior(txt) == FocusBehavior.HIGHLIGHT_PROMPT;
+	}
+
+	/**
+	 * Returns the color of the prompt text.
+	 */
+	Color getForeground(JTextComponent txt) {
+		if (isHighlighted(txt)) {
+			return txt.getSelectedTextColor();
+		} else if (txt.isEnabled()) {
+			return PromptSupport.getForeground(txt);
+		}
+		return txt.getDisabledTextColor();
+	}
+
+	/**
+	 * Returns the prompt text, or <code>null</code> if it should be hidden.
+	 */
+	String getPromptText(JTextComponent txt) {
+		if (txt.isFocusOwner() && PromptSupport.getFocusBehavior(txt) == FocusBehavior.HIDE_PROMPT) {
+			return null;
+		}
+		return PromptSupport.getPrompt(txt);
+	}
+
+	Font getFont(JTextComponent txt) {
+		Font base = txt.getFont();
+		Integer style = PromptSupport.getFontStyle(txt);
+		if (base != baseFont || (style == null ? fontStyle != null : !style.equals(fontStyle))) {
+			baseFont = base;
+			fontStyle = style;
+			font = style == null ? base : base.deriveFont(style);
+		}
+		return font;
+	}
+
+	/**
+	 * Returns the width at which the prompt lines of a {@link JTextArea} with
+	 * line wrapping enabled are wrapped, or <code>0</code> if the lines
+	 * should not be wrapped.
+	 */
+	float getWrapWidth(JTextComponent txt, Insets insets) {
+		if (txt instanceof JTextArea && ((JTextArea) txt).getLineWrap()) {
+			return Math.max(1, txt.getWidth() - insets.left - insets.right);
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if the prompt lines are wrapped at word
+	 * boundaries, like the lines of a {@link JTextArea} with the word wrap
+	 * style.
+	 */
+	boolean isWrapStyleWord(JTextComponent txt) {
+		return txt instanceof JTextArea && ((JTextArea) txt).getWrapStyleWord();
+	}
+
+	/**
+	 * Breaks <code>prompt</code> into lines and measures them, unless the
+	 * cached lines are still valid. Empty lines are represented by
+	 * <code>null</code>.
+	 */
+	private void layout(String prompt, Font font, FontRenderContext frc, float wrapWidth, boolean wrapStyleWord) {
+		if (prompt.equals(text) && font.equals(layoutFont) && frc.equals(this.frc) && wrapWidth == this.wrapWidth
+				&& wrapStyleWord == this.wrapStyleWord) {
+			return;
+		}
+		text = prompt;
+		layoutFont = font;
+		this.frc = frc;
+		this.wrapWidth = wrapWidth;
+		this.wrapStyleWord = wrapStyleWord;
+
+		List<String> texts = new ArrayList<String>();
+		List<TextLayout> layouts = new ArrayList<TextLayout>();
+		for (String line : prompt.split("\n", -1)) {
+			if (line.length() == 0) {
+				texts.add(null);
+				layouts.add(null);
+			} else if (wrapWidth <= 0) {
+				texts.add(line);
+				layouts.add(new TextLayout(line, font, frc));
+			} else {
+				AttributedString attributed = new AttributedString(line);
+				attributed.addAttribute(TextAttribute.FONT, font);
+				BreakIterator breaks = wrapStyleWord ? BreakIterator.getLineInstance() : BreakIterator
+						.getCharacterInstance();
+				LineBreakMeasurer measurer = new LineBreakMeasurer(attributed.getIterator(), breaks, frc);
+				while (measurer.getPosition() < line.length()) {
+					int start = measurer.getPosition();
+					layouts.add(measurer.nextLayout(wrapWidth));
+					texts.add(line.substring(start, measurer.getPosition()));
+				}
+			}
+		}
+		lines = texts.toArray(new String[texts.size()]);
+		advances = new float[lines.length];
+		for (int i = 0; i < advances.length; i++) {
+			if (layouts.get(i) != null) {
+				advances[i] = layouts.get(i).getAdvance();
+			}
+		}
+		LineMetrics metrics = font.getLineMetrics(prompt, frc);
+		ascent = metrics.getAscent();
+		lineHeight = (int) Math.ceil(metrics.getAscent() + metrics.getDescent() + metrics.getLeading());
+	}
+
+	private int getTop(JTextComponent txt, Insets insets, int verticalAlignment) {
+		if (verticalAlignment == SwingConstants.CENTER) {
+			int height = txt.getHeight() - insets.top - insets.bottom;
+			return insets.top + (height - lines.length * lineHeight) / 2;
+		}
+		return insets.top;
+	}
+
+	private int getX(JTextComponent txt, Insets insets, int horizontalAlignment, float advance) {
+		boolean leftToRight = txt.getComponentOrientation().isLeftToRight();
+		if (horizontalAlignment == SwingConstants.LEADING) {
+			horizontalAlignment = leftToRight ? SwingConstants.LEFT : SwingConstants.RIGHT;
+		} else if (horizontalAlignment == SwingConstants.TRAILING) {
+			horizontalAlignment = leftToRight ? SwingConstants.RIGHT : SwingConstants.LEFT;
+		}
+
+		int width = txt.getWidth() - insets.left - insets.right;
+		switch (horizontalAlignment) {
+		case SwingConstants.RIGHT:
+			return insets.left + width - (int) Math.ceil(advance);
+		case SwingConstants.CENTER:
+			return insets.left + (width - (int) Math.ceil(advance)) / 2;
+		default:
+			return insets.left;
+		}
+	}
+}
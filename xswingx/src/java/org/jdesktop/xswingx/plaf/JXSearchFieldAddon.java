@@ -5,7 +5,7 @@ import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
 
-import javax.swing.ImageIcon;
+import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 import javax.swing.plaf.IconUIResource;
 import javax.swing.plaf.InsetsUIResource;
@@ -160,12 +160,32 @@ public class JXSearchFieldAddon extends AbstractComponentAddon {
 						.getClass().getName().indexOf("PlasticXP") != -1);
 	}
 
-	private IconUIResource getIcon(String resourceName) {
-		URL url = getClass().getResource(resourceName);
-		if (url == null) {
-			return null;
-		} else {
-			return new IconUIResource(new ImageIcon(url));
+	/**
+	 * Returns a lazy value, which loads the icon for the image resource
+	 * <code>resourceName</code> when it is first looked up in the
+	 * {@link UIDefaults}. The icon is shared by all look and feels and keeps
+	 * pre-scaled copies of the image for scaled displays.
+	 */
+	private Object getIcon(String resourceName) {
+		return new LazyIcon(getClass(), resourceName);
+	}
+
+	private static final class LazyIcon implements UIDefaults.LazyValue {
+		private final Class<?> base;
+
+		private final String resourceName;
+
+		private LazyIcon(Class<?> base, String resourceName) {
+			this.base = base;
+			this.resourceName = resourceName;
+		}
+
+		public Object createValue(UIDefaults table) {
+			URL url = base.getResource(resourceName);
+			if (url == null) {
+				return null;
+			}
+			return new IconUIResource(ScaledImageIcon.get(url));
 		}
 	}
 }
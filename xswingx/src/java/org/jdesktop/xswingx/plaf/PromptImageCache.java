@@ -0,0 +1,274 @@
+package org.jdesktop.xswingx.plaf;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.swing.text.JTextComponent;
+
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+
+/**
+ * Shared cache of pre-rendered prompt images, used when the
+ * {@link RenderingMode} is {@link RenderingMode#IMAGE}. Text components, whose
+ * prompts look exactly the same, share one image. An image is identified by
+ * the prompt text, font, colors, focus state, size, insets, alignment, wrap
+ * width, scale and graphics configuration of the text component, and by the
+ * text rendering hints of the graphics and the desktop. The least recently
+ * used images are evicted, when the images exceed the memory budget.
+ */
+public final class PromptImageCache {
+	private static long memoryBudget = 4 * 1024 * 1024;
+
+	private static long memoryUsage;
+
+	private static final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<Key, BufferedImage>(16,
+			0.75f, true);
+
+	private PromptImageCache() {
+	}
+
+	/**
+	 * Returns the maximum number of bytes used by cached images.
+	 * 
+	 * @return the memory budget in bytes
+	 */
+	public static synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Sets the maximum number of bytes used by cached images. The least
+	 * recently used images are evicted, if the budget is exceeded.
+	 * 
+	 * @param memoryBudget
+	 *            the memory budget in bytes
+	 */
+	public static synchronized void setMemoryBudget(long memoryBudget) {
+		PromptImageCache.memoryBudget = memoryBudget;
+		evict();
+	}
+
+	/**
+	 * Returns the number of bytes currently used by cached images.
+	 * 
+	 * @return the memory usage in bytes
+	 */
+	public static synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	/**
+	 * Removes all cached images.
+	 */
+	public static synchronized void clear() {
+		images.clear();
+		memoryUsage = 0;
+	}
+
+	/**
+	 * Copies the prompt image of <code>txt</code> to <code>g</code>,
+	 * rendering it first with <code>renderer</code>, if it is not cached.
+	 * Falls back to painting with <code>renderer</code> directly, if
+	 * <code>g</code> is rotated, sheared or flipped, or if the image would not fit
+	 * into the memory budget.
+	 * 
+	 * @param probe
+	 *            a key owned by the caller, which is reused for lookups
+	 */
+	static synchronized void paint(Graphics2D g, JTextComponent txt, DirectPromptRenderer renderer,
+			int horizontalAlignment, int verticalAlignment, Key probe) {
+		AffineTransform transform = g.getTransform();
+		int width = txt.getWidth();
+		int height = txt.getHeight();
+		if (transform.getShearX() != 0 || transform.getShearY() != 0 || transform.getScaleX() <= 0
+				|| transform.getScaleY() <= 0 || width <= 0 || height <= 0) {
+			renderer.paint(g, txt, horizontalAlignment, verticalAlignment);
+			return;
+		}
+
+		probe.set(txt, renderer, horizontalAlignment, verticalAlignment, transform.getScaleX(), transform
+				.getScaleY(), g);
+		BufferedImage image = images.get(probe);
+		if (image == null) {
+			int imageWidth = (int) Math.ceil(width * probe.scaleX);
+			int imageHeight = (int) Math.ceil(height * probe.scaleY);
+			long size = 4L * imageWidth * imageHeight;
+			if (size > memoryBudget) {
+				renderer.paint(g, txt, horizontalAlignment, verticalAlignment);
+				return;
+			}
+
+			image = probe.gc.createCompatibleImage(imageWidth, imageHeight, txt.isOpaque() ? Transparency.OPAQUE
+					: Transparency.TRANSLUCENT);
+			Graphics2D ig = image.createGraphics();
+			ig.setRenderingHints(g.getRenderingHints());
+			ig.scale(probe.scaleX, probe.scaleY);
+			renderer.paint(ig, txt, horizontalAlignment, verticalAlignment);
+			ig.dispose();
+
+			images.put(probe.copy(), image);
+			memoryUsage += size;
+			evict();
+		}
+		g.drawImage(image, 0, 0, width, height, null);
+	}
+
+	private static void evict() {
+		for (Iterator<BufferedImage> it = images.values().iterator(); memoryUsage > memoryBudget && it.hasNext();) {
+			BufferedImage image = it.next();
+			memoryUsage -= 4L * image.getWidth() * image.getHeight();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Identifies the look of a prompt. A text component's UI owns one mutable
+	 * instance for lookups, only copies are stored in the cache.
+	 */
+	static final class Key {
+		private String text;
+
+		private Font font;
+
+		private Color foreground;
+
+		private Color selection;
+
+		private Color background;
+
+		private int width;
+
+		private int height;
+
+		private int top;
+
+		private int left;
+
+		private int bottom;
+
+		private int right;
+
+		private int horizontalAlignment;
+
+		private int verticalAlignment;
+
+		private boolean leftToRight;
+
+		private float wrapWidth;
+
+		private boolean wrapStyleWord;
+
+		private Object textAntialiasing;
+
+		private Object fractionalMetrics;
+
+		private Object desktopHints;
+
+		private double scaleX;
+
+		private double scaleY;
+
+		private GraphicsConfiguration gc;
+
+		private int hash;
+
+		private final Insets insets = new Insets(0, 0, 0, 0);
+
+		void set(JTextComponent txt, DirectPromptRenderer renderer, int horizontalAlignment,
+				int verticalAlignment, double scaleX, double scaleY, Graphics2D g) {
+			text = renderer.getPromptText(txt);
+			font = renderer.getFont(txt);
+			foreground = renderer.getForeground(txt);
+			selection = renderer.isHighlighted(txt) ? txt.getSelectionColor() : null;
+			background = txt.isOpaque() ? PromptSupport.getBackground(txt) : null;
+			width = txt.getWidth();
+			height = txt.getHeight();
+			txt.getInsets(insets);
+			top = insets.top;
+			left = insets.left;
+			bottom = insets.bottom;
+			right = insets.right;
+			this.horizontalAlignment = horizontalAlignment;
+			this.verticalAlignment = verticalAlignment;
+			leftToRight = txt.getComponentOrientation().isLeftToRight();
+			wrapWidth = renderer.getWrapWidth(txt, insets);
+			wrapStyleWord = renderer.isWrapStyleWord(txt);
+			textAntialiasing = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+			fractionalMetrics = g.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS);
+			desktopHints = DirectPromptRenderer.getDesktopHints();
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+			gc = g.getDeviceConfiguration();
+
+			int h = text == null ? 0 : text.hashCode();
+			h = 31 * h + font.hashCode();
+			h = 31 * h + (foreground == null ? 0 : foreground.hashCode());
+			h = 31 * h + (background == null ? 0 : background.hashCode());
+			h = 31 * h + width;
+			h = 31 * h + height;
+			h = 31 * h + Float.floatToIntBits(wrapWidth);
+			hash = h;
+		}
+
+		Key copy() {
+			Key key = new Key();
+			key.text = text;
+			key.font = font;
+			key.foreground = foreground;
+			key.selection = selection;
+			key.background = background;
+			key.width = width;
+			key.height = height;
+			key.top = top;
+			key.left = left;
+			key.bottom = bottom;
+			key.right = right;
+			key.horizontalAlignment = horizontalAlignment;
+			key.verticalAlignment = verticalAlignment;
+			key.leftToRight = leftToRight;
+			key.wrapWidth = wrapWidth;
+			key.wrapStyleWord = wrapStyleWord;
+			key.textAntialiasing = textAntialiasing;
+			key.fractionalMetrics = fractionalMetrics;
+			key.desktopHints = desktopHints;
+			key.scaleX = scaleX;
+			key.scaleY = scaleY;
+			key.gc = gc;
+			key.hash = hash;
+			return key;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return hash == k.hash && width == k.width && height == k.height && top == k.top && left == k.left
+					&& bottom == k.bottom && right == k.right && horizontalAlignment == k.horizontalAlignment
+					&& verticalAlignment == k.verticalAlignment && leftToRight == k.leftToRight
+					&& wrapWidth == k.wrapWidth && wrapStyleWord == k.wrapStyleWord && scaleX == k.scaleX && scaleY == k.scaleY && gc == k.gc
+					&& textAntialiasing == k.textAntialiasing && fractionalMetrics == k.fractionalMetrics
+					&& equal(desktopHints, k.desktopHints) && equal(text, k.text) && font.equals(k.font)
+					&& equal(foreground, k.foreground) && equal(selection, k.selection)
+					&& equal(background, k.background);
+		}
+
+		private static boolean equal(Object o1, Object o2) {
+			return o1 == null ? o2 == null : o1.equals(o2);
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package org.jdesktop.xswingx.plaf;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.JComponent;
+import javax.swing.JTextField;
+import javax.swing.SwingConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+
+import org.jdesktop.xswingx.BuddySupport;
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+
+/**
+ * <p>
+ * Draws the prompt of a text component on top of it and lays out its buddies,
+ * without replacing the text component's UI. Unlike the {@link PromptTextUI}
+ * wrappers, the UI of the look and feel paints the text component and
+ * receives all calls directly, and a look and feel change only updates that
+ * UI.
+ * </p>
+ * <p>
+ * Add the layer to a container instead of the text component:
+ * 
+ * <pre>
+ * JTextField txt = new JTextField();
+ * PromptSupport.setPrompt(&quot;Name&quot;, txt);
+ * panel.add(new PromptLayer(txt));
+ * </pre>
+ * 
+ * </p>
+ * <p>
+ * The prompt honors the prompt text, colors, font style and
+ * {@link FocusBehavior} set with {@link PromptSupport}. It is always drawn
+ * directly, like with {@link PromptSupport.RenderingMode#DIRECT}. Buddies are
+ * supported for {@link JTextField}s. Search fields need the
+ * {@link SearchFieldUI} and cannot be decorated.
+ * </p>
+ * <p>
+ * The layer relies on {@link #isPaintingOrigin()} to paint the prompt, when
+ * only the text component is repainted, which requires Java 7 or later. On
+ * older versions, such repaints, like the blinking caret, paint over the
+ * prompt until the layer is repainted, e.g. on the next focus change.
+ * </p>
+ */
+public class PromptLayer extends JComponent {
+	private static final long serialVersionUID = 1L;
+
+	private final JTextComponent view;
+
+	private final DirectPromptRenderer renderer = new DirectPromptRenderer();
+
+	private final Handler handler = new Handler();
+
+	private BuddyLayoutAndBorder layoutAndBorder;
+
+	private Document document;
+
+	private boolean promptShown;
+
+	/**
+	 * Creates a layer, which decorates <code>view</code>. A
+	 * {@link PromptTextUI} already installed on <code>view</code> is replaced
+	 * by the UI of the look and feel.
+	 * 
+	 * @param view
+	 *            the text component
+	 * @throws IllegalArgumentException
+	 *             if <code>view</code> is already decorated by a layer
+	 */
+	public PromptLayer(JTextComponent view) {
+		if (isDecorated(view)) {
+			throw new IllegalArgumentException("text component is already decorated");
+		}
+		this.view = view;
+		view.putClientProperty(PromptLayer.class, this);
+		if (view.getUI() instanceof PromptTextUI) {
+			TextUIWrapper.getDefaultWrapper().uninstall(view);
+		}
+
+		if (view instanceof JTextField) {
+			layoutAndBorder = new BuddyLayoutAndBorder();
+			layoutAndBorder.install((JTextField) view);
+			BuddySupport.ensureBuddiesAreInComponentHierarchy((JTextField) view);
+		}
+
+		setLayout(new BorderLayout());
+		add(view, BorderLayout.CENTER);
+
+		view.addFocusListener(handler);
+		view.addPropertyChangeListener(handler);
+		setDocument(view.getDocument());
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>textComponent</code> is decorated by
+	 * a {@link PromptLayer}, and therefore must not be wrapped.
+	 */
+	static boolean isDecorated(JTextComponent textComponent) {
+		return textComponent.getClientProperty(PromptLayer.class) != null;
+	}
+
+	/**
+	 * Returns the decorated text component.
+	 * 
+	 * @return the text component
+	 */
+	public JTextComponent getView() {
+		return view;
+	}
+
+	/**
+	 * Returns the larger of the preferred size of the text component and the
+	 * preferred layout size of its buddies.
+	 */
+	public Dimension getPreferredSize() {
+		Dimension d = super.getPreferredSize();
+		if (isPreferredSizeSet() || layoutAndBorder == null) {
+			return d;
+		}
+		Dimension ld = layoutAndBorder.preferredLayoutSize(view);
+		Insets insets = getInsets();
+		d.width = Math.max(d.width, ld.width + insets.left + insets.right);
+		d.height = Math.max(d.height, ld.height + insets.top + insets.bottom);
+		return d;
+	}
+
+	/**
+	 * Returns <code>false</code>, so that repaints of the text component are
+	 * painted by this layer, which draws the prompt on top.
+	 */
+	public boolean isOptimizedDrawingEnabled() {
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code>, so that repaints of the text component are
+	 * painted by this layer on Java 7 and later.
+	 */
+	protected boolean isPaintingOrigin() {
+		return true;
+	}
+
+	/**
+	 * Paints the text component, then its prompt if it contains no text.
+	 */
+	protected void paintChildren(Graphics g) {
+		super.paintChildren(g);
+		if (shouldPaintPrompt()) {
+			Graphics vg = g.create(view.getX(), view.getY(), view.getWidth(), view.getHeight());
+			try {
+				paintPrompt(vg);
+			} finally {
+				vg.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Fills the area inside the insets with the prompt background, if it
+	 * differs from the background of the text component, then draws the
+	 * prompt and the caret.
+	 * 
+	 * @param g
+	 *            the graphics in the coordinates of the text component
+	 */
+	protected void paintPrompt(Graphics g) {
+		if (view.isOpaque() && !PromptSupport.getBackground(view).equals(view.getBackground())) {
+			Insets insets = view.getInsets();
+			g.setColor(PromptSupport.getBackground(view));
+			g.fillRect(insets.left, insets.top, view.getWidth() - insets.left - insets.right, view.getHeight()
+					- insets.top - insets.bottom);
+		}
+		renderer.paintText(g, view, getPromptHorizontalAlignment(), getPromptVerticalAlignment());
+
+		if (view.getCaret() != null) {
+			view.getCaret().paint(g);
+		}
+	}
+
+	/**
+	 * Aligns the prompt like the text of a {@link JTextField}, otherwise
+	 * {@link SwingConstants#LEADING}.
+	 */
+	protected int getPromptHorizontalAlignment() {
+		if (view instanceof JTextField) {
+			return ((JTextField) view).getHorizontalAlignment();
+		}
+		return SwingConstants.LEADING;
+	}
+
+	/**
+	 * Centers the prompt of a {@link JTextField}, otherwise
+	 * {@link SwingConstants#TOP}.
+	 */
+	protected int getPromptVerticalAlignment() {
+		if (view instanceof JTextField) {
+			return SwingConstants.CENTER;
+		}
+		return SwingConstants.TOP;
+	}
+
+	/**
+	 * Returns <code>true</code> if the text component contains no text. Only
+	 * checks the length of the document, so the text is never copied.
+	 */
+	protected boolean shouldPaintPrompt() {
+		return document == null || document.getLength() == 0;
+	}
+
+	/**
+	 * Repaints the area covered by the text component, if the prompt is
+	 * visible.
+	 */
+	protected void repaintPrompt() {
+		if (shouldPaintPrompt()) {
+			repaint(view.getBounds());
+		}
+	}
+
+	private void setDocument(Document document) {
+		if (this.document != null) {
+			this.document.removeDocumentListener(handler);
+		}
+		this.document = document;
+		if (document != null) {
+			document.addDocumentListener(handler);
+		}
+		promptShown = shouldPaintPrompt();
+	}
+
+	/**
+	 * Repaints the prompt when it is shown or hidden, or when its appearance
+	 * changes, and keeps the buddy layout installed across UI changes.
+	 */
+	private final class Handler implements FocusListener, DocumentListener, PropertyChangeListener {
+		public void focusGained(FocusEvent e) {
+			focusChanged();
+		}
+
+		public void focusLost(FocusEvent e) {
+			focusChanged();
+		}
+
+		private void focusChanged() {
+			if (PromptSupport.getFocusBehavior(view) != FocusBehavior.SHOW_PROMPT) {
+				repaintPrompt();
+			}
+		}
+
+		public void insertUpdate(DocumentEvent e) {
+			update();
+		}
+
+		public void removeUpdate(DocumentEvent e) {
+			update();
+		}
+
+		public void changedUpdate(DocumentEvent e) {
+		}
+
+		/**
+		 * Only repaints on empty/non-empty transitions.
+		 */
+		private void update() {
+			if (shouldPaintPrompt() != promptShown) {
+				promptShown = !promptShown;
+				repaint(view.getBounds());
+			}
+		}
+
+		public void propertyChange(PropertyChangeEvent evt) {
+			String name = evt.getPropertyName();
+			if ("document".equals(name)) {
+				setDocument(view.getDocument());
+				repaint(view.getBounds());
+			} else if ("UI".equals(name)) {
+				// the old UI removes the buddies and the layout, since it is a
+				// UIResource
+				if (layoutAndBorder != null) {
+					if (view.getLayout() != layoutAndBorder) {
+						view.setLayout(layoutAndBorder);
+					}
+					BuddySupport.ensureBuddiesAreInComponentHierarchy((JTextField) view);
+				}
+			} else if (PromptSupport.PROMPT.equals(name) || PromptSupport.FOREGROUND.equals(name)
+					|| PromptSupport.BACKGROUND.equals(name) || PromptSupport.FOCUS_BEHAVIOR.equals(name)
+					|| PromptSupport.FONT_STYLE.equals(name)) {
+				repaintPrompt();
+			}
+		}
+	}
+}
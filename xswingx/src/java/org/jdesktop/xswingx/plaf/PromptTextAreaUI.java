@@ -1,22 +1,24 @@
 package org.jdesktop.xswingx.plaf;
 
+import javax.swing.JEditorPane;
 import javax.swing.JTextArea;
 import javax.swing.plaf.TextUI;
 import javax.swing.text.JTextComponent;
 
 /**
  * {@link PromptTextUI} implementation for rendering prompts on {@link JTextArea}s
- * and uses a {@link JTextArea} as a prompt component.
+ * and uses a {@link JTextArea} as a prompt component. Also renders the prompts
+ * of other multi-line text components, like {@link JEditorPane}s.
+ * 
+ * Unlike the prompt component of text fields, the prompt component is not
+ * shared, but owned by this UI. Its views, including the wrapped lines, are
+ * only laid out again when the prompt, the font or the size of the text
+ * component change, not whenever another text area is painted.
  * 
  * @author Peter Weishapl <petw@gmx.net>
  * 
  */
 public class PromptTextAreaUI extends PromptTextUI {
-	/**
-	 * Shared prompt renderer.
-	 */
-	private final static JTextArea txt = new JTextArea();
-
 	/**
 	 * Creates a new {@link PromptTextAreaUI}.
 	 * 
@@ -27,24 +29,51 @@ public class PromptTextAreaUI extends PromptTextUI {
 	}
 
 	/**
-	 * Overrides {@link #getPromptComponent(JTextComponent)} to additionally
-	 * update {@link JTextArea} specific properties.
+	 * Overrides {@link #configurePromptComponent(JTextComponent, JTextComponent)}
+	 * to additionally update {@link JTextArea} specific properties.
 	 */
-	public JTextComponent getPromptComponent(JTextComponent txt) {
-		JTextArea lbl = (JTextArea) super.getPromptComponent(txt);
-		JTextArea txtArea = (JTextArea) txt;
+	protected void configurePromptComponent(JTextComponent promptComponent, JTextComponent txt) {
+		super.configurePromptComponent(promptComponent, txt);
+		JTextArea lbl = (JTextArea) promptComponent;
+		if (txt instanceof JTextArea) {
+			JTextArea txtArea = (JTextArea) txt;
+			lbl.setColumns(txtArea.getColumns());
+			lbl.setRows(txtArea.getRows());
+		} else {
+			lbl.setColumns(0);
+			lbl.setRows(0);
+		}
+	}
 
-		lbl.setColumns(txtArea.getColumns());
-		lbl.setRows(txtArea.getRows());
+	/**
+	 * Additionally compares the columns and rows, which do not fire property
+	 * change events.
+	 */
+	protected boolean isPromptComponentValid(JTextComponent promptComponent, JTextComponent txt) {
+		if (!(txt instanceof JTextArea)) {
+			return super.isPromptComponentValid(promptComponent, txt);
+		}
+		JTextArea lbl = (JTextArea) promptComponent;
+		JTextArea txtArea = (JTextArea) txt;
+		return super.isPromptComponentValid(promptComponent, txt) && lbl.getColumns() == txtArea.getColumns()
+				&& lbl.getRows() == txtArea.getRows();
+	}
 
-		return lbl;
+	/**
+	 * Combines the number of rows and columns of the {@link JTextArea}.
+	 */
+	protected int getPreferredSizeState(JTextComponent txt) {
+		if (!(txt instanceof JTextArea)) {
+			return 0;
+		}
+		JTextArea txtArea = (JTextArea) txt;
+		return txtArea.getRows() << 16 ^ txtArea.getColumns();
 	}
 
 	/**
-	 * Returns a shared {@link JTextArea}.
+	 * Returns a new {@link JTextArea}, which is only used by this UI.
 	 */
 	protected JTextComponent createPromptComponent() {
-		txt.updateUI();
-		return txt;
+		return new JTextArea();
 	}
 }
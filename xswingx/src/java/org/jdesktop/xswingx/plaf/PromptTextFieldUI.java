@@ -1,6 +1,7 @@
 package org.jdesktop.xswingx.plaf;
 
 import javax.swing.JTextField;
+import javax.swing.SwingConstants;
 import javax.swing.plaf.TextUI;
 import javax.swing.text.JTextComponent;
 
@@ -29,11 +30,12 @@ public class PromptTextFieldUI extends PromptTextUI {
 	}
 
 	/**
-	 * Overrides {@link #getPromptComponent(JTextComponent)} to additionally
-	 * update {@link JTextField} specific properties.
+	 * Overrides {@link #configurePromptComponent(JTextComponent, JTextComponent)}
+	 * to additionally update {@link JTextField} specific properties.
 	 */
-	public JTextComponent getPromptComponent(JTextComponent txt) {
-		LabelField lbl = (LabelField) super.getPromptComponent(txt);
+	protected void configurePromptComponent(JTextComponent promptComponent, JTextComponent txt) {
+		super.configurePromptComponent(promptComponent, txt);
+		LabelField lbl = (LabelField) promptComponent;
 		JTextField txtField = (JTextField) txt;
 
 		lbl.setHorizontalAlignment(txtField.getHorizontalAlignment());
@@ -54,8 +56,36 @@ public class PromptTextFieldUI extends PromptTextUI {
 //		BuddySupport.setOuterMargin(lbl, BuddySupport.getOuterMargin(txtField));
 //		BuddySupport.setLeft(lbl, BuddySupport.getLeft(txtField));
 //		BuddySupport.setRight(lbl, BuddySupport.getRight(txtField));
+	}
+
+	/**
+	 * Additionally compares the columns, which do not fire property change
+	 * events.
+	 */
+	protected boolean isPromptComponentValid(JTextComponent promptComponent, JTextComponent txt) {
+		return super.isPromptComponentValid(promptComponent, txt)
+				&& ((JTextField) promptComponent).getColumns() == ((JTextField) txt).getColumns();
+	}
 
-		return lbl;
+	/**
+	 * Returns the number of columns of the {@link JTextField}.
+	 */
+	protected int getPreferredSizeState(JTextComponent txt) {
+		return ((JTextField) txt).getColumns();
+	}
+
+	/**
+	 * Aligns the prompt like the text of the {@link JTextField}.
+	 */
+	protected int getPromptHorizontalAlignment(JTextComponent txt) {
+		return ((JTextField) txt).getHorizontalAlignment();
+	}
+
+	/**
+	 * Centers the prompt vertically, like the text of a {@link JTextField}.
+	 */
+	protected int getPromptVerticalAlignment(JTextComponent txt) {
+		return SwingConstants.CENTER;
 	}
 
 	/**
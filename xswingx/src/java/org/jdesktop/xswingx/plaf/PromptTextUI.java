@@ -1,16 +1,22 @@
 package org.jdesktop.xswingx.plaf;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.TextComponent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.lang.reflect.Method;
 
 import javax.accessibility.Accessible;
 import javax.swing.JComponent;
+import javax.swing.JTextField;
+import javax.swing.SwingConstants;
 import javax.swing.plaf.ComponentUI;
 import javax.swing.plaf.TextUI;
 import javax.swing.text.BadLocationException;
@@ -22,8 +28,10 @@ import javax.swing.text.View;
 import javax.swing.text.DefaultHighlighter.DefaultHighlightPainter;
 import javax.swing.text.Position.Bias;
 
+import org.jdesktop.xswingx.NativeSearchFieldSupport;
 import org.jdesktop.xswingx.PromptSupport;
 import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
 
 /**
  * <p>
@@ -41,6 +49,8 @@ import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
 public abstract class PromptTextUI extends TextUI {
 	static final FocusHandler focusHandler = new FocusHandler();
 
+	private static final Method GET_BASELINE = getBaselineMethod();
+
 	/**
 	 * Delegate the hard work to this object.
 	 */
@@ -51,6 +61,68 @@ public abstract class PromptTextUI extends TextUI {
 	 */
 	protected JTextComponent promptComponent;
 
+	/**
+	 * Draws the prompt text, if the {@link RenderingMode} is
+	 * {@link RenderingMode#DIRECT}.
+	 */
+	private DirectPromptRenderer directRenderer;
+
+	/**
+	 * Reused to look up prompt images, if the {@link RenderingMode} is
+	 * {@link RenderingMode#IMAGE}.
+	 */
+	private PromptImageCache.Key imageKey;
+
+	/**
+	 * Identifies this object as the last one, which configured a (shared)
+	 * prompt component, without referencing this object from the prompt
+	 * component.
+	 */
+	private final Object owner = new Object();
+
+	/**
+	 * Incremented whenever a property of the text component changes.
+	 */
+	private int stateVersion;
+
+	/**
+	 * Highlights the prompt text, if the {@link FocusBehavior} is
+	 * {@link FocusBehavior#HIGHLIGHT_PROMPT}.
+	 */
+	private DefaultHighlightPainter highlightPainter;
+
+	private JComponent baselineComponent;
+
+	private int baselineWidth;
+
+	private int baselineHeight;
+
+	private int baselineVersion;
+
+	private int baseline;
+
+	/**
+	 * The memoized preferred size of the prompt component, which is valid as
+	 * long as the fields below match the state of the text component.
+	 */
+	private Dimension preferredSize;
+
+	private JComponent preferredSizeComponent;
+
+	private int preferredSizeVersion;
+
+	private boolean preferredSizeFocused;
+
+	private int preferredSizeWidth;
+
+	private int preferredSizeState;
+
+	private final PropertyChangeListener stateHandler = new PropertyChangeListener() {
+		public void propertyChange(PropertyChangeEvent evt) {
+			stateVersion++;
+		}
+	};
+
 	/**
 	 * Creates a new {@link PromptTextUI} which delegates most work to another
 	 * {@link TextUI}.
@@ -71,7 +143,8 @@ public abstract class PromptTextUI extends TextUI {
 	/**
 	 * Calls TextUI#installUI(JComponent) on the delegate and installs a focus
 	 * listener on <code>c</code> which repaints the component when it gains
-	 * or loses the focus.
+	 * or loses the focus. Also installs a property change listener, which
+	 * tracks changes of <code>c</code>s properties.
 	 */
 	public void installUI(JComponent c) {
 		delegate.installUI(c);
@@ -81,15 +154,23 @@ public abstract class PromptTextUI extends TextUI {
 		// repaint to correctly highlight text if FocusBehavior is
 		// HIGHLIGHT_LABEL in Metal and Windows LnF
 		txt.addFocusListener(focusHandler);
+		txt.addPropertyChangeListener(stateHandler);
+		stateVersion++;
 	}
 
 	/**
-	 * Delegates, then uninstalls the focus listener.
+	 * Delegates, then uninstalls the focus and property change listeners.
 	 */
 	public void uninstallUI(JComponent c) {
 		delegate.uninstallUI(c);
 		c.removeFocusListener(focusHandler);
+		c.removePropertyChangeListener(stateHandler);
 		promptComponent = null;
+		directRenderer = null;
+		baselineComponent = null;
+		preferredSizeComponent = null;
+		preferredSize = null;
+		imageKey = null;
 	}
 
 	/**
@@ -97,13 +178,45 @@ public abstract class PromptTextUI extends TextUI {
 	 * prompt components properties to reflect the given {@link JTextComponent}s
 	 * properties and returns it.
 	 * 
+	 * The prompt component is only reconfigured, if it has last been
+	 * configured for another text component, if a property of
+	 * <code>txt</code> has changed since, or if
+	 * {@link #isPromptComponentValid(JTextComponent, JTextComponent)} returns
+	 * <code>false</code>.
+	 * 
 	 * @param txt
 	 * @return the adjusted prompt component
 	 */
 	public JTextComponent getPromptComponent(JTextComponent txt) {
 		if (promptComponent == null) {
 			promptComponent = createPromptComponent();
+			getConfiguration(promptComponent).owner = null;
+		}
+
+		Configuration configuration = getConfiguration(promptComponent);
+		boolean focused = txt.isFocusOwner();
+		if (configuration.owner != owner || configuration.version != stateVersion || configuration.focused != focused
+				|| !isPromptComponentValid(promptComponent, txt)) {
+			configuration.owner = null;
+			configurePromptComponent(promptComponent, txt);
+			configuration.owner = owner;
+			configuration.version = stateVersion;
+			configuration.focused = focused;
 		}
+		return promptComponent;
+	}
+
+	/**
+	 * Sets the prompt components properties to reflect the given
+	 * {@link JTextComponent}s properties. Override to configure additional
+	 * properties.
+	 * 
+	 * @param promptComponent
+	 *            the prompt component
+	 * @param txt
+	 *            the text component
+	 */
+	protected void configurePromptComponent(JTextComponent promptComponent, JTextComponent txt) {
 		if (txt.isFocusOwner() && PromptSupport.getFocusBehavior(txt) == FocusBehavior.HIDE_PROMPT) {
 			promptComponent.setText(null);
 		} else {
@@ -114,8 +227,8 @@ public abstract class PromptTextUI extends TextUI {
 		if (txt.isFocusOwner() && PromptSupport.getFocusBehavior(txt) == FocusBehavior.HIGHLIGHT_PROMPT) {
 			promptComponent.setForeground(txt.getSelectedTextColor());
 			try {
-				promptComponent.getHighlighter().addHighlight(0, promptComponent.getText().length(),
-						new DefaultHighlightPainter(txt.getSelectionColor()));
+				promptComponent.getHighlighter().addHighlight(0, promptComponent.getDocument().getLength(),
+						getHighlightPainter(txt.getSelectionColor()));
 			} catch (BadLocationException e) {
 				e.printStackTrace();
 			}
@@ -123,23 +236,51 @@ public abstract class PromptTextUI extends TextUI {
 			promptComponent.setForeground(PromptSupport.getForeground(txt));
 		}
 
-		if (PromptSupport.getFontStyle(txt) == null) {
-			promptComponent.setFont(txt.getFont());
-		} else {
-			promptComponent.setFont(txt.getFont().deriveFont(PromptSupport.getFontStyle(txt)));
-		}
-
+		promptComponent.setFont(getDirectRenderer().getFont(txt));
 		promptComponent.setBackground(PromptSupport.getBackground(txt));
 		promptComponent.setEnabled(txt.isEnabled());
 		promptComponent.setOpaque(txt.isOpaque());
-		promptComponent.setBounds(txt.getBounds());
+		promptComponent.setBounds(txt.getX(), txt.getY(), txt.getWidth(), txt.getHeight());
 		promptComponent.setBorder(txt.getBorder());
 		promptComponent.setSelectedTextColor(txt.getSelectedTextColor());
 		promptComponent.setSelectionColor(txt.getSelectionColor());
 		promptComponent.setEditable(txt.isEditable());
 		promptComponent.setMargin(txt.getMargin());
+	}
 
-		return promptComponent;
+	private DefaultHighlightPainter getHighlightPainter(Color selectionColor) {
+		if (highlightPainter == null || highlightPainter.getColor() != selectionColor
+				&& (selectionColor == null || !selectionColor.equals(highlightPainter.getColor()))) {
+			highlightPainter = new DefaultHighlightPainter(selectionColor);
+		}
+		return highlightPainter;
+	}
+
+	/**
+	 * Compares the properties of <code>txt</code>, which do not fire property
+	 * change events, with the prompt component. Override to compare
+	 * additional properties.
+	 * 
+	 * @param promptComponent
+	 *            the prompt component, which has last been configured for
+	 *            <code>txt</code>
+	 * @param txt
+	 *            the text component
+	 * @return <code>true</code> if the prompt component does not need to be
+	 *         configured again
+	 */
+	protected boolean isPromptComponentValid(JTextComponent promptComponent, JTextComponent txt) {
+		return promptComponent.getX() == txt.getX() && promptComponent.getY() == txt.getY()
+				&& promptComponent.getWidth() == txt.getWidth() && promptComponent.getHeight() == txt.getHeight();
+	}
+
+	private static Configuration getConfiguration(JTextComponent promptComponent) {
+		Configuration configuration = (Configuration) promptComponent.getClientProperty(Configuration.class);
+		if (configuration == null) {
+			configuration = new Configuration();
+			promptComponent.putClientProperty(Configuration.class, configuration);
+		}
+		return configuration;
 	}
 
 	/**
@@ -148,26 +289,69 @@ public abstract class PromptTextUI extends TextUI {
 	 * {@link #getPromptComponent(JTextComponent)} and it's preferred size is
 	 * returned. Otherwise super{@link #getPreferredSize(JComponent)} is
 	 * called.
+	 * 
+	 * The preferred size of the prompt component is remembered until a
+	 * property, the focus state or the width of <code>c</code> changes, until
+	 * {@link #getPreferredSizeState(JTextComponent)} returns a different value,
+	 * or as long as <code>c</code> is invalid, for example after a buddy has
+	 * been added, removed, shown or hidden.
 	 */
 	public Dimension getPreferredSize(JComponent c) {
 		JTextComponent txt = (JTextComponent) c;
 		if (shouldPaintPrompt(txt)) {
-			return getPromptComponent(txt).getPreferredSize();
+			boolean focused = txt.isFocusOwner();
+			int state = getPreferredSizeState(txt);
+			if (preferredSize == null || !c.isValid() || c != preferredSizeComponent
+					|| stateVersion != preferredSizeVersion || focused != preferredSizeFocused
+					|| c.getWidth() != preferredSizeWidth || state != preferredSizeState) {
+				preferredSize = getPromptComponent(txt).getPreferredSize();
+				preferredSizeComponent = c;
+				preferredSizeVersion = stateVersion;
+				preferredSizeFocused = focused;
+				preferredSizeWidth = c.getWidth();
+				preferredSizeState = state;
+			}
+			return new Dimension(preferredSize);
 		}
 		return delegate.getPreferredSize(c);
 	}
 
+	/**
+	 * Returns a value, which changes whenever a property of <code>txt</code>
+	 * changes, that influences the preferred size of the prompt component but
+	 * does not fire a property change event, like the number of columns.
+	 * Override to track additional properties.
+	 * 
+	 * @param txt
+	 *            the text component
+	 * @return the state of the untracked properties, <code>0</code> by default
+	 */
+	protected int getPreferredSizeState(JTextComponent txt) {
+		return 0;
+	}
+
 	/**
 	 * Delegates painting when {@link #shouldPaintPrompt(JTextComponent)}
 	 * returns false. Otherwise the prompt component is retrieved by calling
-	 * {@link #getPromptComponent(JTextComponent)} and painted. Then the caret
-	 * of the given text component is painted.
+	 * {@link #getPromptComponent(JTextComponent)} and painted, or the prompt
+	 * is drawn directly or copied from a cached image, depending on the
+	 * {@link RenderingMode}. Then the caret of the given text component is
+	 * painted.
 	 */
 	public void paint(Graphics g, final JComponent c) {
 		JTextComponent txt = (JTextComponent) c;
 
 		if (shouldPaintPrompt(txt)) {
-			paintPromptComponent(g, txt);
+			switch (PromptSupport.getRenderingMode(txt)) {
+			case DIRECT:
+				paintPromptDirectly(g, txt);
+				break;
+			case IMAGE:
+				paintPromptImage(g, txt);
+				break;
+			default:
+				paintPromptComponent(g, txt);
+			}
 		} else {
 			delegate.paint(g, c);
 		}
@@ -182,15 +366,112 @@ public abstract class PromptTextUI extends TextUI {
 		}
 	}
 
+	/**
+	 * Draws the prompt text inside the insets of <code>txt</code> without
+	 * configuring the prompt component, then paints the caret.
+	 */
+	protected void paintPromptDirectly(Graphics g, JTextComponent txt) {
+		paintPromptBackground(g, txt);
+		getDirectRenderer().paint(g, txt, getPromptHorizontalAlignment(txt), getPromptVerticalAlignment(txt));
+
+		if (txt.getCaret() != null) {
+			txt.getCaret().paint(g);
+		}
+	}
+
+	/**
+	 * Copies the prompt image from the {@link PromptImageCache}, then paints
+	 * the caret.
+	 */
+	protected void paintPromptImage(Graphics g, JTextComponent txt) {
+		if (imageKey == null) {
+			imageKey = new PromptImageCache.Key();
+		}
+		paintPromptBackground(g, txt);
+		PromptImageCache.paint((Graphics2D) g, txt, getDirectRenderer(), getPromptHorizontalAlignment(txt),
+				getPromptVerticalAlignment(txt), imageKey);
+
+		if (txt.getCaret() != null) {
+			txt.getCaret().paint(g);
+		}
+	}
+
+	/**
+	 * Lets the delegate paint the background of a non-opaque text component,
+	 * since look and feels like Synth paint it in their UI regardless of the
+	 * opaque property. When the prompt component is painted, its UI does this.
+	 * The background of an opaque text component is filled with the prompt
+	 * background by the {@link DirectPromptRenderer}.
+	 */
+	private void paintPromptBackground(Graphics g, JTextComponent txt) {
+		if (!txt.isOpaque()) {
+			delegate.update(g, txt);
+		}
+	}
+
+	private DirectPromptRenderer getDirectRenderer() {
+		if (directRenderer == null) {
+			directRenderer = new DirectPromptRenderer();
+		}
+		return directRenderer;
+	}
+
+	/**
+	 * Returns the horizontal alignment of the prompt text, when it is drawn
+	 * directly.
+	 * 
+	 * @param txt
+	 * @return {@link SwingConstants#LEADING}
+	 */
+	protected int getPromptHorizontalAlignment(JTextComponent txt) {
+		return SwingConstants.LEADING;
+	}
+
+	/**
+	 * Returns the vertical alignment of the prompt text, when it is drawn
+	 * directly.
+	 * 
+	 * @param txt
+	 * @return {@link SwingConstants#TOP}
+	 */
+	protected int getPromptVerticalAlignment(JTextComponent txt) {
+		return SwingConstants.TOP;
+	}
+
 	/**
 	 * Returns if the prompt or the text field should be painted, depending on
-	 * the state of <code>txt</code>.
+	 * the state of <code>txt</code>. Only checks the length of the document,
+	 * so the text is never copied.
 	 * 
 	 * @param txt
 	 * @return true when <code>txt</code> contains not text, otherwise false
 	 */
 	public boolean shouldPaintPrompt(JTextComponent txt) {
-		return txt.getText() == null || txt.getText().length() == 0;
+		return txt.getDocument() == null || txt.getDocument().getLength() == 0;
+	}
+
+	/**
+	 * Repaints the area of <code>txt</code> covered by the prompt, if the
+	 * prompt is visible. Only the area inside the insets of <code>txt</code>
+	 * is repainted, unless <code>background</code> is <code>true</code>,
+	 * since the prompt background fills the whole component.
+	 * 
+	 * @param txt
+	 *            the text component
+	 * @param background
+	 *            <code>true</code> if the background of the prompt changed
+	 */
+	public void repaintPrompt(JTextComponent txt, boolean background) {
+		if (!shouldPaintPrompt(txt)) {
+			return;
+		}
+		if (background) {
+			txt.repaint();
+		} else {
+			Insets insets = txt.getInsets();
+			txt.repaint(insets.left, insets.top, txt.getWidth() - insets.left - insets.right, txt.getHeight()
+					- insets.top - insets.bottom);
+		}
 	}
 
 	/**
@@ -210,6 +491,10 @@ public abstract class PromptTextUI extends TextUI {
 	 */
 	public Rectangle modelToView(JTextComponent t, int pos, Bias bias) throws BadLocationException {
 		if (shouldPaintPrompt(t)) {
+			if (PromptSupport.getRenderingMode(t) != RenderingMode.COMPONENT) {
+				return getDirectRenderer().modelToView(t, getPromptHorizontalAlignment(t),
+						getPromptVerticalAlignment(t));
+			}
 			return getPromptComponent(t).getUI().modelToView(t, pos, bias);
 		} else {
 			return delegate.modelToView(t, pos, bias);
@@ -293,36 +578,84 @@ public abstract class PromptTextUI extends TextUI {
 	}
 
 	/**
-	 * Tries to call {@link ComponentUI#getBaseline(int, int)} on the delegate
-	 * via Reflection. Workaround to maintain compatibility with Java 5. Ideally
-	 * we should also override {@link #getBaselineResizeBehavior(JComponent)},
-	 * but that's impossible since the {@link BaselineResizeBehavior} class,
-	 * which does not exist in Java 5, is involved.
+	 * Calls {@link ComponentUI#getBaseline(int, int)} on the delegate via
+	 * Reflection. Workaround to maintain compatibility with Java 5. The method
+	 * is resolved only once and the baseline is remembered until the size or a
+	 * property of <code>c</code> changes, because layout managers call this
+	 * method very often. Ideally we should also override
+	 * {@link #getBaselineResizeBehavior(JComponent)}, but that's impossible
+	 * since the {@link BaselineResizeBehavior} class, which does not exist in
+	 * Java 5, is involved.
 	 * 
 	 * @return the baseline, or -2 if <code>getBaseline</code> could not be
 	 *         invoked on the delegate.
 	 */
 	public int getBaseline(JComponent c, int width, int height) {
+		if (GET_BASELINE == null) {
+			return -2;
+		}
+		if (c != baselineComponent || width != baselineWidth || height != baselineHeight
+				|| stateVersion != baselineVersion) {
+			try {
+				baseline = (Integer) GET_BASELINE.invoke(delegate, new Object[] { c, width, height });
+			} catch (Exception ex) {
+				// ignore
+				baseline = -2;
+			}
+			baselineComponent = c;
+			baselineWidth = width;
+			baselineHeight = height;
+			baselineVersion = stateVersion;
+		}
+		return baseline;
+	}
+
+	/**
+	 * Returns {@link ComponentUI#getBaseline(int, int)}, or <code>null</code>
+	 * when running on Java 5.
+	 */
+	private static Method getBaselineMethod() {
 		try {
-			Method m = delegate.getClass().getMethod("getBaseline", JComponent.class, int.class, int.class);
-			Object o = m.invoke(delegate, new Object[] { c, width, height });
-			return (Integer) o;
+			return ComponentUI.class.getMethod("getBaseline", JComponent.class, int.class, int.class);
 		} catch (Exception ex) {
-			// ignore
-			return -2;
+			return null;
 		}
 	}
 
 	/**
-	 * Repaint the {@link TextComponent} when it loses or gains the focus.
+	 * Repaints the prompt, when the focus change hides or highlights it.
+	 * Native search fields are always repainted completely, since their focus
+	 * ring is painted by the look and feel.
 	 */
 	private static final class FocusHandler extends FocusAdapter {
 		public void focusGained(FocusEvent e) {
-			e.getComponent().repaint();
+			repaintPrompt(e);
 		}
 
 		public void focusLost(FocusEvent e) {
-			e.getComponent().repaint();
+			repaintPrompt(e);
+		}
+
+		private void repaintPrompt(FocusEvent e) {
+			JTextComponent txt = (JTextComponent) e.getComponent();
+			if (txt instanceof JTextField && NativeSearchFieldSupport.isNativeSearchField((JTextField) txt)) {
+				txt.repaint();
+			} else if (txt.getUI() instanceof PromptTextUI
+					&& PromptSupport.getFocusBehavior(txt) != FocusBehavior.SHOW_PROMPT) {
+				((PromptTextUI) txt.getUI()).repaintPrompt(txt, false);
+			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Stored as a client property on a prompt component, to remember for which
+	 * text component state it has last been configured.
+	 */
+	private static final class Configuration {
+		Object owner;
+
+		int version;
+
+		boolean focused;
+	}
+}
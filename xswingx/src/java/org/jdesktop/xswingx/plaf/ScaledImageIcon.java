@@ -0,0 +1,140 @@
+package org.jdesktop.xswingx.plaf;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+/**
+ * An {@link ImageIcon}, which keeps one pre-scaled copy of its image per
+ * device scale factor. On scaled displays, painting the icon only copies the
+ * pre-scaled image, instead of resampling the image on every paint.
+ * 
+ * Icons loaded by {@link #get(URL)} are shared by all search fields and look
+ * and feels. The pre-scaled images are not serialized, but scaled again when
+ * needed.
+ */
+final class ScaledImageIcon extends ImageIcon {
+	private static final long serialVersionUID = 1L;
+
+	private static final Map<String, ScaledImageIcon> icons = new HashMap<String, ScaledImageIcon>();
+
+	private transient Map<Scale, BufferedImage> scaledImages = new HashMap<Scale, BufferedImage>();
+
+	private transient Scale probe = new Scale();
+
+	private transient AffineTransform deviceTransform = new AffineTransform();
+
+	ScaledImageIcon(URL url) {
+		super(url);
+	}
+
+	ScaledImageIcon(Image image) {
+		super(image);
+	}
+
+	/**
+	 * Returns the shared icon for the image at <code>url</code>, loading it
+	 * first, if necessary.
+	 */
+	static synchronized ScaledImageIcon get(URL url) {
+		String key = url.toExternalForm();
+		ScaledImageIcon icon = icons.get(key);
+		if (icon == null) {
+			icon = new ScaledImageIcon(url);
+			icons.put(key, icon);
+		}
+		return icon;
+	}
+
+	/**
+	 * Copies the image, which has been pre-scaled to the scale of
+	 * <code>g</code>, to the device pixels at <code>x</code>,
+	 * <code>y</code>. Falls back to painting the image normally, if
+	 * <code>g</code> is not a {@link Graphics2D}, is not scaled, or is
+	 * rotated, sheared or flipped.
+	 */
+	public synchronized void paintIcon(Component c, Graphics g, int x, int y) {
+		if (!(g instanceof Graphics2D)) {
+			super.paintIcon(c, g, x, y);
+			return;
+		}
+		Graphics2D g2 = (Graphics2D) g;
+		AffineTransform transform = g2.getTransform();
+		double scaleX = transform.getScaleX();
+		double scaleY = transform.getScaleY();
+		if (scaleX == 1 && scaleY == 1 || transform.getShearX() != 0 || transform.getShearY() != 0 || scaleX <= 0
+				|| scaleY <= 0 || getIconWidth() <= 0 || getIconHeight() <= 0) {
+			super.paintIcon(c, g, x, y);
+			return;
+		}
+
+		deviceTransform.setToTranslation(Math.round(x * scaleX + transform.getTranslateX()), Math.round(y
+				* scaleY + transform.getTranslateY()));
+		g2.setTransform(deviceTransform);
+		g2.drawImage(getScaledImage(scaleX, scaleY), 0, 0, null);
+		g2.setTransform(transform);
+	}
+
+	/**
+	 * Returns the image scaled by <code>scaleX</code> and
+	 * <code>scaleY</code>, scaling it first, if necessary.
+	 */
+	synchronized BufferedImage getScaledImage(double scaleX, double scaleY) {
+		probe.x = scaleX;
+		probe.y = scaleY;
+		BufferedImage image = scaledImages.get(probe);
+		if (image == null) {
+			int width = (int) Math.ceil(getIconWidth() * scaleX);
+			int height = (int) Math.ceil(getIconHeight() * scaleY);
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D ig = image.createGraphics();
+			ig.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			ig.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			ig.drawImage(getImage(), 0, 0, width, height, null);
+			ig.dispose();
+
+			Scale scale = new Scale();
+			scale.x = scaleX;
+			scale.y = scaleY;
+			scaledImages.put(scale, image);
+		}
+		return image;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		scaledImages = new HashMap<Scale, BufferedImage>();
+		probe = new Scale();
+		deviceTransform = new AffineTransform();
+	}
+
+	private static final class Scale {
+		private double x;
+
+		private double y;
+
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(x) * 31 + Double.doubleToLongBits(y);
+			return (int) (bits ^ (bits >>> 32));
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Scale)) {
+				return false;
+			}
+			Scale s = (Scale) obj;
+			return x == s.x && y == s.y;
+		}
+	}
+}
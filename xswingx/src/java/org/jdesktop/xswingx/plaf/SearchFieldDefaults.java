@@ -0,0 +1,104 @@
+package org.jdesktop.xswingx.plaf;
+
+import java.awt.Insets;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.Icon;
+import javax.swing.UIManager;
+
+/**
+ * An immutable snapshot of the "SearchField.*" defaults of the current look
+ * and feel, which is shared by all {@link SearchFieldUI}s. The defaults are
+ * resolved once, when the snapshot is first requested, and read from plain
+ * fields afterwards. The snapshot is discarded, when the {@link UIManager}
+ * reports a look and feel change or a "SearchField.*" default being put. The
+ * listeners are registered with the {@link UIManager} of the application
+ * context, in which this class is first used.
+ */
+final class SearchFieldDefaults {
+	private static final String PREFIX = "SearchField.";
+
+	private static SearchFieldDefaults current;
+
+	static {
+		PropertyChangeListener invalidator = new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				String name = evt.getPropertyName();
+				if ("lookAndFeel".equals(name) || "UIDefaults".equals(name) || name == null
+						|| name.startsWith(PREFIX)) {
+					invalidate();
+				}
+			}
+		};
+		UIManager.addPropertyChangeListener(invalidator);
+		UIManager.getDefaults().addPropertyChangeListener(invalidator);
+	}
+
+	final boolean useSeperatePopupButton;
+
+	final Object layoutStyle;
+
+	final Object promptFontStyle;
+
+	final Insets buttonMargin;
+
+	private final Map<String, Icon> icons = new HashMap<String, Icon>();
+
+	final int popupOffset;
+
+	/**
+	 * Whether the popup menu is shown below the search field, instead of
+	 * below the popup button.
+	 */
+	final boolean searchFieldPopupSource;
+
+	private SearchFieldDefaults() {
+		useSeperatePopupButton = UIManager.getBoolean(PREFIX + "useSeperatePopupButton");
+		layoutStyle = UIManager.get(PREFIX + "layoutStyle");
+		promptFontStyle = UIManager.get(PREFIX + "promptFontStyle");
+		buttonMargin = UIManager.getInsets(PREFIX + "buttonMargin");
+		for (String name : new String[] { "icon", "rolloverIcon", "pressedIcon", "popupIcon", "popupRolloverIcon",
+				"popupPressedIcon", "clearIcon", "clearRolloverIcon", "clearPressedIcon" }) {
+			icons.put(PREFIX + name, UIManager.getIcon(PREFIX + name));
+		}
+		popupOffset = UIManager.getInt(PREFIX + "popupOffset");
+		searchFieldPopupSource = JXSearchFieldAddon.SEARCH_FIELD_SOURCE.equals(UIManager
+				.getString(PREFIX + "popupSource"));
+	}
+
+	/**
+	 * Returns the icon of the snapshot, or of the {@link UIManager}, if
+	 * <code>key</code> is not a "SearchField.*" icon.
+	 * 
+	 * @param key
+	 *            the resource key of the icon
+	 * @return the icon
+	 */
+	Icon getIcon(String key) {
+		if (icons.containsKey(key)) {
+			return icons.get(key);
+		}
+		return UIManager.getIcon(key);
+	}
+
+	/**
+	 * Returns the snapshot of the current defaults, resolving them first, if
+	 * necessary.
+	 */
+	static synchronized SearchFieldDefaults get() {
+		if (current == null) {
+			current = new SearchFieldDefaults();
+		}
+		return current;
+	}
+
+	/**
+	 * Discards the current snapshot.
+	 */
+	static synchronized void invalidate() {
+		current = null;
+	}
+}
@@ -9,12 +9,14 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JComponent;
+import javax.swing.JPopupMenu;
 import javax.swing.SwingUtilities;
-import javax.swing.UIManager;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.plaf.TextUI;
@@ -45,6 +47,14 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 
 	private Handler handler;
 
+	private Component gap;
+
+	/**
+	 * Whether the search field contained text, when the button visibility has
+	 * last been updated.
+	 */
+	private boolean textShown;
+
 	public static final Insets NO_INSETS = new Insets(0, 0, 0, 0);
 
 	public SearchFieldUI(TextUI delegate) {
@@ -128,8 +138,7 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 			 * seperate popup button.
 			 */
 			@Override
-			public Insets getBorderInsets(Component c) {
-				Insets insets = super.getBorderInsets(c);
+			protected void adjustBorderInsets(Insets insets) {
 				if (searchField != null && !isNativeSearchField()) {
 					if (isMacLayoutStyle()) {
 						if (!clearButton().isVisible()) {
@@ -137,7 +146,7 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 						}
 					} else {
 						JButton refButton = popupButton();
-						if (searchField.getFindPopupMenu() == null ^ searchField.isUseSeperatePopupButton()) {
+						if (!hasFindPopupMenu() ^ searchField.isUseSeperatePopupButton()) {
 							refButton = searchButton();
 						}
 
@@ -150,35 +159,52 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 					}
 
 				}
-				return insets;
 			}
 		};
 	}
 
+	/**
+	 * Computes the arrangement of the buttons and lets
+	 * {@link BuddySupport#replace(javax.swing.JTextField, List, List)} apply only the
+	 * differences, so the buttons stay in the component hierarchy, if they
+	 * do not move.
+	 */
 	private void layoutButtons() {
-		BuddySupport.removeAll(searchField);
-
-		if (isNativeSearchField()) {
-			return;
-		}
+		List<Component> left = new ArrayList<Component>();
+		List<Component> right = new ArrayList<Component>();
+
+		if (!isNativeSearchField()) {
+			if (isMacLayoutStyle()) {
+				left.add(searchButton());
+			} else {
+				right.add(0, searchButton());
+			}
 
-		if (isMacLayoutStyle()) {
-			BuddySupport.addLeft(searchButton(), searchField);
-		} else {
-			BuddySupport.addRight(searchButton(), searchField);
-		}
+			right.add(0, clearButton());
 
-		BuddySupport.addRight(clearButton(), searchField);
+			if (usingSeperatePopupButton()) {
+				right.add(0, getGap(getPopupOffset()));
+			}
 
-		if (usingSeperatePopupButton()) {
-			BuddySupport.addRight(BuddySupport.createGap(getPopupOffset()), searchField);
+			if (usingSeperatePopupButton() || !isMacLayoutStyle()) {
+				right.add(0, popupButton());
+			} else {
+				left.add(popupButton());
+			}
 		}
 
-		if (usingSeperatePopupButton() || !isMacLayoutStyle()) {
-			BuddySupport.addRight(popupButton(), searchField);
-		} else {
-			BuddySupport.addLeft(popupButton(), searchField);
+		BuddySupport.replace(searchField, left, right);
+	}
+
+	/**
+	 * Returns the gap between the clear and the popup button, which is reused
+	 * as long as its width does not change.
+	 */
+	private Component getGap(int width) {
+		if (gap == null || gap.getPreferredSize().width != width) {
+			gap = BuddySupport.createGap(width);
 		}
+		return gap;
 	}
 
 	private boolean isMacLayoutStyle() {
@@ -188,6 +214,8 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	/**
 	 * Initialize the search fields various properties based on the
 	 * corresponding "SearchField.*" properties from defaults table. The
+	 * defaults are read from a snapshot, which is resolved once per look and
+	 * feel and shared by all search fields. The
 	 * {@link JXSearchField}s layout is set to the value returned by
 	 * <code>createLayout</code>. Also calls
 	 * {@link #replaceBorderIfNecessary()} and {@link #updateButtons()}. This
@@ -202,29 +230,30 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 			return;
 		}
 
-		if (UIManager.getBoolean("SearchField.useSeperatePopupButton")) {
+		SearchFieldDefaults defaults = SearchFieldDefaults.get();
+		if (defaults.useSeperatePopupButton) {
 			searchField.customSetUIProperty("useSeperatePopupButton", Boolean.TRUE);
 		} else {
 			searchField.customSetUIProperty("useSeperatePopupButton", Boolean.FALSE);
 		}
 
-		searchField.customSetUIProperty("layoutStyle", UIManager.get("SearchField.layoutStyle"));
-		searchField.customSetUIProperty("promptFontStyle", UIManager.get("SearchField.promptFontStyle"));
+		searchField.customSetUIProperty("layoutStyle", defaults.layoutStyle);
+		searchField.customSetUIProperty("promptFontStyle", defaults.promptFontStyle);
 
 		if (shouldReplaceResource(searchField.getOuterMargin())) {
-			searchField.setOuterMargin(UIManager.getInsets("SearchField.buttonMargin"));
+			searchField.setOuterMargin(defaults.buttonMargin);
 		}
 
 		updateButtons();
 
 		if (shouldReplaceResource(clearButton().getIcon())) {
-			clearButton().setIcon(UIManager.getIcon("SearchField.clearIcon"));
+			clearButton().setIcon(defaults.getIcon("SearchField.clearIcon"));
 		}
 		if (shouldReplaceResource(clearButton().getPressedIcon())) {
-			clearButton().setPressedIcon(UIManager.getIcon("SearchField.clearPressedIcon"));
+			clearButton().setPressedIcon(defaults.getIcon("SearchField.clearPressedIcon"));
 		}
 		if (shouldReplaceResource(clearButton().getRolloverIcon())) {
-			clearButton().setRolloverIcon(UIManager.getIcon("SearchField.clearRolloverIcon"));
+			clearButton().setRolloverIcon(defaults.getIcon("SearchField.clearRolloverIcon"));
 		}
 
 		searchButton().setIcon(getNewIcon(searchButton().getIcon(), "SearchField.icon"));
@@ -278,9 +307,8 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	 * @return the new icon
 	 */
 	protected Icon getNewIcon(Icon icon, String resKey) {
-		Icon uiIcon = UIManager.getIcon(resKey);
 		if (shouldReplaceResource(icon)) {
-			return uiIcon;
+			return SearchFieldDefaults.get().getIcon(resKey);
 		}
 		return icon;
 	}
@@ -323,7 +351,17 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	 * @return the popup button is used in addition to the search button
 	 */
 	public boolean usingSeperatePopupButton() {
-		return searchField.isUseSeperatePopupButton() && searchField.getFindPopupMenu() != null;
+		return searchField.isUseSeperatePopupButton() && hasFindPopupMenu();
+	}
+
+	/**
+	 * Returns <code>true</code> if a search popup menu has been set. Unlike
+	 * {@link JXSearchField#getFindPopupMenu()}, does not update the UI of a
+	 * popup menu, which has not been shown since the last look and feel
+	 * change.
+	 */
+	private boolean hasFindPopupMenu() {
+		return NativeSearchFieldSupport.getFindPopupMenu(searchField) != null;
 	}
 
 	/**
@@ -337,7 +375,7 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	 */
 	protected int getPopupOffset() {
 		if (usingSeperatePopupButton()) {
-			return UIManager.getInt("SearchField.popupOffset");
+			return SearchFieldDefaults.get().popupOffset;
 		}
 		return 0;
 	}
@@ -348,17 +386,38 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	 * of a seperate popup button. Also resets the search buttons pressed and
 	 * rollover icons if the search field is in regular search mode or clears
 	 * the icons when the search field is in instant search mode.
+	 * 
+	 * @see #updateButtonVisibility()
+	 * @see #updateButtonIcons()
 	 */
 	protected void updateButtons() {
-		clearButton().setVisible((!searchField.isRegularSearchMode() || searchField.isMacLayoutStyle()) && hasText());
+		updateButtonVisibility();
+		updateButtonIcons();
+	}
+
+	/**
+	 * Sets the visibility of the search, clear and popup buttons depending on
+	 * the search mode, layout stye, search text, search popup menu and the use
+	 * of a seperate popup button. While typing, this method is only called
+	 * when the search field becomes empty or non-empty.
+	 */
+	protected void updateButtonVisibility() {
+		textShown = hasText();
+		clearButton().setVisible((!searchField.isRegularSearchMode() || searchField.isMacLayoutStyle()) && textShown);
 
 		boolean clearNotHere = (searchField.isMacLayoutStyle() || !clearButton().isVisible());
 
 		searchButton().setVisible(
-				(searchField.getFindPopupMenu() == null || usingSeperatePopupButton()) && clearNotHere);
-		popupButton().setVisible(
-				searchField.getFindPopupMenu() != null && (clearNotHere || usingSeperatePopupButton()));
+				(!hasFindPopupMenu() || usingSeperatePopupButton()) && clearNotHere);
+		popupButton().setVisible(hasFindPopupMenu() && (clearNotHere || usingSeperatePopupButton()));
+	}
 
+	/**
+	 * Resets the search buttons pressed and rollover icons if the search field
+	 * is in regular search mode or clears the icons when the search field is
+	 * in instant search mode. Not called while typing.
+	 */
+	protected void updateButtonIcons() {
 		if (searchField.isRegularSearchMode()) {
 			searchButton().setRolloverIcon(getNewIcon(searchButton().getRolloverIcon(), "SearchField.rolloverIcon"));
 			searchButton().setPressedIcon(getNewIcon(searchButton().getPressedIcon(), "SearchField.pressedIcon"));
@@ -374,7 +433,7 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 	}
 
 	private boolean hasText() {
-		return searchField.getText() != null && searchField.getText().length() > 0;
+		return searchField.getDocument() != null && searchField.getDocument().getLength() > 0;
 	}
 
 	class Handler implements PropertyChangeListener, ActionListener, DocumentListener {
@@ -397,6 +456,9 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 					if (doc != null) {
 						doc.addDocumentListener(this);
 					}
+					if (hasText() != textShown) {
+						updateButtonVisibility();
+					}
 				}
 			}
 		}
@@ -405,15 +467,16 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 		 * Shows the search popup menu, if installed.
 		 */
 		public void actionPerformed(ActionEvent e) {
-			if (searchField.getFindPopupMenu() != null) {
-				Component src = JXSearchFieldAddon.SEARCH_FIELD_SOURCE.equals(UIManager
-						.getString("SearchField.popupSource")) ? searchField : (Component) e.getSource();
+			JPopupMenu findPopupMenu = searchField.getFindPopupMenu();
+			if (findPopupMenu != null) {
+				Component src = SearchFieldDefaults.get().searchFieldPopupSource ? searchField : (Component) e
+						.getSource();
 
 				Rectangle r = SwingUtilities.getLocalBounds(src);
-				int popupWidth = searchField.getFindPopupMenu().getPreferredSize().width;
+				int popupWidth = findPopupMenu.getPreferredSize().width;
 				int x = searchField.isVistaLayoutStyle() || usingSeperatePopupButton() ? r.x + r.width - popupWidth
 						: r.x;
-				searchField.getFindPopupMenu().show(src, x, r.y + r.height);
+				findPopupMenu.show(src, x, r.y + r.height);
 			}
 		}
 
@@ -433,21 +496,22 @@ public class SearchFieldUI extends BuddyTextFieldUI {
 		 * Called when the search text changes. Calls
 		 * {@link JXSearchField#postActionEvent()} In instant search mode or
 		 * starts the search field instant search timer if the instant search
-		 * delay is greater 0.
+		 * delay is greater 0. Updates the button visibility only when the
+		 * search field becomes empty or non-empty.
 		 */
 		private void update() {
 			if (searchField.isInstantSearchMode()) {
-				searchField.getInstantSearchTimer().stop();
 				// only use timer when delay greater 0.
 				if (searchField.getInstantSearchDelay() > 0) {
-					searchField.getInstantSearchTimer().setInitialDelay(searchField.getInstantSearchDelay());
-					searchField.getInstantSearchTimer().start();
+					searchField.startInstantSearchTimer();
 				} else {
 					searchField.postActionEvent();
 				}
 			}
 
-			updateButtons();
+			if (hasText() != textShown) {
+				updateButtonVisibility();
+			}
 		}
 	}
 }
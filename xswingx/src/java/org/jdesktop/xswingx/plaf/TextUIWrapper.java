@@ -2,11 +2,16 @@ package org.jdesktop.xswingx.plaf;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.swing.JComponent;
 import javax.swing.JTextField;
 import javax.swing.UIDefaults;
+import javax.swing.UIManager;
 import javax.swing.plaf.TextUI;
+import javax.swing.plaf.basic.BasicEditorPaneUI;
 import javax.swing.plaf.basic.BasicTextAreaUI;
 import javax.swing.plaf.basic.BasicTextFieldUI;
 import javax.swing.plaf.basic.BasicTextUI;
@@ -81,6 +86,50 @@ public abstract class TextUIWrapper<UI extends TextUI> {
 	 */
 	public abstract UI wrapUI(JTextComponent textComponent);
 
+	/**
+	 * Returns the UI object, which wraps <code>textUI</code>, before
+	 * <code>textUI</code> is installed on <code>textComponent</code>.
+	 * Returns <code>null</code> by default, which means that
+	 * <code>textUI</code> has to be installed first and is then wrapped by
+	 * {@link #wrapUI(JTextComponent)}.
+	 * 
+	 * @param textComponent
+	 * @param textUI
+	 *            the UI object provided by the current {@link UIDefaults}
+	 * @return the wrapping UI or <code>null</code>
+	 * @see #updateUI(JTextComponent)
+	 */
+	protected UI wrapUI(JTextComponent textComponent, TextUI textUI) {
+		return null;
+	}
+
+	/**
+	 * <p>
+	 * Sets the UI object provided by the current {@link UIDefaults} on
+	 * <code>textComponent</code>. If this wrapper stays installed on
+	 * <code>textComponent</code>, the UI object is wrapped before it is set,
+	 * so the UI object of the look and feel is installed only once, instead
+	 * of being installed, uninstalled and installed again by the wrapper.
+	 * </p>
+	 * <p>
+	 * Text components with integrated wrapper support call this method from
+	 * {@link JComponent#updateUI()} instead of <code>super.updateUI()</code>.
+	 * </p>
+	 * 
+	 * @param textComponent
+	 */
+	public final void updateUI(JTextComponent textComponent) {
+		TextUI textUI = (TextUI) UIManager.getUI(textComponent);
+		if (uiChangeHandler.isInstalled(textComponent) && !wrapperClass.isInstance(textUI)) {
+			UI wrapped = wrapUI(textComponent, textUI);
+			if (wrapped != null) {
+				textUI = wrapped;
+			}
+		}
+		textComponent.setUI(textUI);
+		textComponent.invalidate();
+	}
+
 	/**
 	 * Returns the wrapper class.
 	 * 
@@ -109,17 +158,112 @@ public abstract class TextUIWrapper<UI extends TextUI> {
 
 	private final class TextUIChangeHandler extends AbstractUIChangeHandler {
 		public void propertyChange(PropertyChangeEvent evt) {
-			JTextComponent txt = (JTextComponent) evt.getSource();
-
-			replaceUIIfNeeded(txt);
+			uiChanged((JTextComponent) evt.getSource());
 		}
 	}
 
+	/**
+	 * Called when the UI of an installed text component changes. Wraps the
+	 * new UI, if necessary.
+	 * 
+	 * @param textComponent
+	 */
+	protected void uiChanged(JTextComponent textComponent) {
+		replaceUIIfNeeded(textComponent);
+	}
+
+	/**
+	 * Creates the {@link PromptTextUI}, which wraps the UI of a text
+	 * component.
+	 * 
+	 * @see DefaultWrapper#register(Class, PromptUIFactory)
+	 */
+	public interface PromptUIFactory {
+		/**
+		 * Creates a {@link PromptTextUI}, which wraps <code>textUI</code>.
+		 * 
+		 * @param textComponent
+		 *            the text component
+		 * @param textUI
+		 *            the current UI of <code>textComponent</code>
+		 * @return the wrapping UI
+		 */
+		PromptTextUI createUI(JTextComponent textComponent, TextUI textUI);
+	}
+
 	public static final class DefaultWrapper extends TextUIWrapper<PromptTextUI> {
+		/**
+		 * The registered factories by {@link TextUI} class.
+		 */
+		private static final Map<Class<?>, PromptUIFactory> factories = new HashMap<Class<?>, PromptUIFactory>();
+
+		/**
+		 * The factories resolved for {@link TextUI} classes, including
+		 * subclasses of registered classes.
+		 */
+		private static final Map<Class<?>, PromptUIFactory> resolved = new WeakHashMap<Class<?>, PromptUIFactory>();
+
+		static {
+			register(BasicTextFieldUI.class, new PromptUIFactory() {
+				public PromptTextUI createUI(JTextComponent textComponent, TextUI textUI) {
+					if (textComponent instanceof JXSearchField) {
+						return new SearchFieldUI(textUI);
+					}
+					return new BuddyTextFieldUI(textUI);
+				}
+			});
+			PromptUIFactory textAreaFactory = new PromptUIFactory() {
+				public PromptTextUI createUI(JTextComponent textComponent, TextUI textUI) {
+					return new PromptTextAreaUI(textUI);
+				}
+			};
+			register(BasicTextAreaUI.class, textAreaFactory);
+			register(BasicEditorPaneUI.class, textAreaFactory);
+		}
+
 		private DefaultWrapper() {
 			super(PromptTextUI.class);
 		}
 
+		/**
+		 * Registers <code>factory</code> to wrap UIs of the class
+		 * <code>uiClass</code> and its subclasses, unless a factory has been
+		 * registered for a more specific subclass.
+		 * 
+		 * @param uiClass
+		 *            the class of the UIs to wrap
+		 * @param factory
+		 *            creates the wrapping UIs, or <code>null</code> to remove
+		 *            the registration
+		 */
+		public static synchronized void register(Class<? extends TextUI> uiClass, PromptUIFactory factory) {
+			if (factory == null) {
+				factories.remove(uiClass);
+			} else {
+				factories.put(uiClass, factory);
+			}
+			resolved.clear();
+		}
+
+		/**
+		 * Returns the factory registered for <code>uiClass</code> or its
+		 * nearest superclass. The result is remembered for every class.
+		 * 
+		 * @return the factory or <code>null</code> if <code>uiClass</code>
+		 *         cannot be wrapped
+		 */
+		static synchronized PromptUIFactory getFactory(Class<?> uiClass) {
+			if (resolved.containsKey(uiClass)) {
+				return resolved.get(uiClass);
+			}
+			PromptUIFactory factory = null;
+			for (Class<?> c = uiClass; c != null && factory == null; c = c.getSuperclass()) {
+				factory = factories.get(c);
+			}
+			resolved.put(uiClass, factory);
+			return factory;
+		}
+
 		/**
 		 * <p>
 		 * Creates a new {@link PromptTextUI}, which wraps the given
@@ -127,43 +271,75 @@ public abstract class TextUIWrapper<UI extends TextUI> {
 		 * </p>
 		 * <p>
 		 * If <code>textUI</code> is of type {@link PromptTextUI},
-		 * <code>textUI</code> will be returned. If <code>textUI</code> is
-		 * of type {@link BasicTextFieldUI} a {@link BuddyTextFieldUI} object
-		 * will be returned. If <code>textUI</code> is of type
-		 * {@link BasicTextAreaUI} a {@link PromptTextAreaUI} object will be
-		 * returned.
+		 * <code>textUI</code> will be returned. Otherwise the factory
+		 * registered for the class of <code>textUI</code> creates the
+		 * wrapper. By default, a {@link BuddyTextFieldUI} (or
+		 * {@link SearchFieldUI}) wraps a {@link BasicTextFieldUI}, including
+		 * the UIs of password fields, and a {@link PromptTextAreaUI} wraps a
+		 * {@link BasicTextAreaUI} or {@link BasicEditorPaneUI}, including the
+		 * UIs of text panes.
 		 * </p>
 		 * 
 		 * @param textComponent
 		 *            wrap this components UI
 		 * @return a {@link PromptTextUI} which wraps <code>textUI</code>
+		 * @throws IllegalArgumentException
+		 *             if no factory has been registered for the class of
+		 *             <code>textUI</code>
 		 */
 		@Override
 		public PromptTextUI wrapUI(JTextComponent textComponent) {
-			TextUI textUI = textComponent.getUI();
+			return createUI(textComponent, textComponent.getUI());
+		}
+
+		/**
+		 * Wraps <code>textUI</code> like {@link #wrapUI(JTextComponent)},
+		 * unless <code>textComponent</code> is decorated by a
+		 * {@link PromptLayer}.
+		 */
+		@Override
+		protected PromptTextUI wrapUI(JTextComponent textComponent, TextUI textUI) {
+			if (PromptLayer.isDecorated(textComponent)) {
+				return null;
+			}
+			return createUI(textComponent, textUI);
+		}
 
+		private PromptTextUI createUI(JTextComponent textComponent, TextUI textUI) {
 			if (textUI instanceof PromptTextUI) {
 				return (PromptTextUI) textUI;
-			} else if (textUI instanceof BasicTextFieldUI) {
-				if (textComponent instanceof JXSearchField) {
-					return new SearchFieldUI(textUI);
-				} else {
-					return new BuddyTextFieldUI(textUI);
-				}
-			} else if (textUI instanceof BasicTextAreaUI) {
-				return new PromptTextAreaUI(textUI);
 			}
-			throw new IllegalArgumentException();
+			PromptUIFactory factory = getFactory(textUI.getClass());
+			if (factory == null) {
+				throw new IllegalArgumentException("no prompt UI factory registered for " + textUI.getClass());
+			}
+			return factory.createUI(textComponent, textUI);
+		}
+
+		/**
+		 * Also puts the buddies back into the component hierarchy, when the
+		 * new UI has already been wrapped by {@link #updateUI(JTextComponent)}.
+		 */
+		@Override
+		protected void uiChanged(JTextComponent textComponent) {
+			if (!replaceUIIfNeeded(textComponent) && textComponent instanceof JTextField
+					&& !PromptLayer.isDecorated(textComponent)) {
+				BuddySupport.ensureBuddiesAreInComponentHierarchy((JTextField) textComponent);
+			}
 		}
 
 		/**
 		 * Every time the UI needs to be replaced we also need to make sure,
 		 * that all buddy components are also in the component hierarchy.
 		 * (That's because {@link BasicTextUI} removes all our buddies upon UI
-		 * changes).
+		 * changes). Text components decorated by a {@link PromptLayer} are
+		 * never wrapped.
 		 */
 		@Override
 		protected boolean replaceUIIfNeeded(JTextComponent textComponent) {
+			if (PromptLayer.isDecorated(textComponent)) {
+				return false;
+			}
 			boolean replaced = super.replaceUIIfNeeded(textComponent);
 
 			if (replaced && textComponent instanceof JTextField) {
@@ -3,6 +3,11 @@ package org.jdesktop.xswingx;
 import static org.junit.Assert.*;
 
 import java.awt.Component;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JTextField;
@@ -120,10 +125,100 @@ public class BuddySupportTest {
 		Assert.assertSame(2, tf.getComponentCount());
 	}
 
+	@Test
+	public void testReplace() throws Exception {
+		JButton left = new JButton();
+		JButton right = new JButton();
+		BuddySupport.addLeft(left, tf);
+		BuddySupport.addRight(right, tf);
+
+		final int[] changes = new int[1];
+		tf.addContainerListener(new ContainerListener() {
+			public void componentAdded(ContainerEvent e) {
+				changes[0]++;
+			}
+
+			public void componentRemoved(ContainerEvent e) {
+				changes[0]++;
+			}
+		});
+
+		BuddySupport.replace(tf, Arrays.<Component> asList(left), Arrays.<Component> asList(right));
+		Assert.assertSame(0, changes[0]);
+
+		JButton other = new JButton();
+		BuddySupport.replace(tf, Arrays.<Component> asList(right), Arrays.<Component> asList(other));
+		Assert.assertSame(2, changes[0]);
+		assertEquals(Arrays.asList(right), BuddySupport.getLeft(tf));
+		assertEquals(Arrays.asList(other), BuddySupport.getRight(tf));
+		assertNull(left.getParent());
+		Assert.assertSame(tf, right.getParent());
+		Assert.assertSame(tf, other.getParent());
+	}
+
+	@Test
+	public void testEdit() throws Exception {
+		JButton first = new JButton();
+		JButton second = new JButton();
+		JButton third = new JButton();
+		BuddySupport.addLeft(first, tf);
+
+		BuddySupport.edit(tf).addLeft(second).addRight(third).addGap(5, Position.RIGHT).commit();
+		assertEquals(Arrays.asList(first, second), BuddySupport.getLeft(tf));
+		Assert.assertSame(third, BuddySupport.getRight(tf).get(1));
+		Assert.assertSame(4, tf.getComponentCount());
+
+		try {
+			BuddySupport.edit(tf).addRight(first).commit();
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+		Assert.assertSame(4, tf.getComponentCount());
+
+		BuddySupport.edit(tf).remove(first).commit();
+		assertNull(first.getParent());
+		assertEquals(Arrays.asList(second), BuddySupport.getLeft(tf));
+	}
+
+	@Test
+	public void testEditKeepsConcurrentChanges() throws Exception {
+		JButton first = new JButton();
+		JButton second = new JButton();
+		BuddySupport.Edit edit = BuddySupport.edit(tf).addLeft(second);
+		BuddySupport.addLeft(first, tf);
+		edit.commit();
+
+		assertEquals(Arrays.asList(first, second), BuddySupport.getLeft(tf));
+		Assert.assertSame(tf, first.getParent());
+	}
+
+	@Test
+	public void testBuddyViewReused() throws Exception {
+		JButton button = new JButton();
+		BuddySupport.addLeft(button, tf);
+		Assert.assertSame(BuddySupport.getLeft(tf), BuddySupport.getLeft(tf));
+
+		List<Component> buddies = new ArrayList<Component>();
+		tf.putClientProperty(Position.LEFT, buddies);
+		assertTrue(BuddySupport.getLeft(tf).isEmpty());
+		buddies.add(button);
+		Assert.assertSame(button, BuddySupport.getLeft(tf).get(0));
+	}
+
 	@Test
 	public void testCreateNegativeGap() throws Exception {
 		Component c = BuddySupport.createGap(-1);
 		Assert.assertSame(-1, c.getPreferredSize().width);
 	}
 
+	@Test
+	public void testBuddiesKeptOnUpdateUI() throws Exception {
+		JXTextField txt = new JXTextField("prompt");
+		JButton button = new JButton();
+		txt.addBuddy(button, Position.LEFT);
+		txt.updateUI();
+		assertTrue(txt.getUI() instanceof BuddyTextFieldUI);
+		assertSame(txt, button.getParent());
+	}
 }
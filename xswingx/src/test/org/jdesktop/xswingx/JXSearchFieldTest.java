@@ -13,12 +13,18 @@ import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
 import javax.swing.BorderFactory;
 import javax.swing.Icon;
+import javax.swing.JButton;
 import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
 import javax.swing.plaf.InsetsUIResource;
@@ -67,6 +73,98 @@ public class JXSearchFieldTest {
 		assertTrue(eventReceived);
 	}
 	
+	@Test
+	public void testButtonsKeptOnSearchModeChange() throws Exception {
+		final int[] changes = new int[1];
+		searchField.addContainerListener(new ContainerListener() {
+			public void componentAdded(ContainerEvent e) {
+				changes[0]++;
+			}
+
+			public void componentRemoved(ContainerEvent e) {
+				changes[0]++;
+			}
+		});
+
+		searchField.setSearchMode(SearchMode.INSTANT);
+		searchField.setSearchMode(SearchMode.REGULAR);
+		searchField.setFindPopupMenu(new JPopupMenu());
+		assertSame(0, changes[0]);
+	}
+
+	@Test
+	public void testUIInstalledOnceOnUpdateUI() throws Exception {
+		final int[] changes = new int[1];
+		searchField.addPropertyChangeListener("UI", new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				changes[0]++;
+			}
+		});
+		searchField.updateUI();
+		assertSame(1, changes[0]);
+		assertTrue(searchField.getUI() instanceof SearchFieldUI);
+		assertSame(searchField, searchField.getFindButton().getParent());
+	}
+
+	@Test
+	public void testFindPopupMenuUpdatedLazily() throws Exception {
+		JPopupMenu popup = new JPopupMenu();
+		searchField.setFindPopupMenu(popup);
+		Object ui = popup.getUI();
+		searchField.updateUI();
+		searchField.addNotify();
+		searchField.validate();
+		assertSame(ui, popup.getUI());
+
+		assertSame(popup, searchField.getFindPopupMenu());
+		assertNotSame(ui, popup.getUI());
+		ui = popup.getUI();
+		searchField.getFindPopupMenu();
+		assertSame(ui, popup.getUI());
+	}
+
+	@Test
+	public void testButtonsOnlyUpdatedOnTransition() throws Exception {
+		final int[] updates = new int[2];
+		JXSearchField sf = new JXSearchField() {
+			protected JButton createCancelButton() {
+				JButton b = super.createCancelButton();
+				b.addComponentListener(new ComponentAdapter() {
+					public void componentShown(ComponentEvent e) {
+						updates[0]++;
+					}
+				});
+				return b;
+			}
+
+			protected JButton createFindButton() {
+				return new BuddyButton() {
+					public void setRolloverIcon(Icon rolloverIcon) {
+						updates[1]++;
+						super.setRolloverIcon(rolloverIcon);
+					}
+				};
+			}
+		};
+		sf.setSearchMode(SearchMode.INSTANT);
+		updates[1] = 0;
+
+		sf.replaceSelection("a");
+		sf.replaceSelection("b");
+		sf.replaceSelection("c");
+		// component events are delivered on the event dispatch thread
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+			}
+		});
+		assertSame(1, updates[0]);
+		assertSame(0, updates[1]);
+		assertTrue(sf.getCancelButton().isVisible());
+
+		sf.setText("");
+		assertFalse(sf.getCancelButton().isVisible());
+	}
+
 	@Test
 	public void testCancelAction() throws Exception {
 		assertSame(ClearAction.class, searchField.getCancelAction().getClass());
@@ -541,18 +639,28 @@ public class JXSearchFieldTest {
 	@Test
 	public void testChangeRecentSearchesName() throws Exception {
 		searchField.setRecentSearchesSaveKey("test");
-		RecentSearches rs = searchField.getRecentSearches();
+		RecentSearches rs = waitUntilLoaded(searchField.getRecentSearches());
 		rs.removeAll();
 		rs.put("test1");
 		
 		searchField.setRecentSearchesSaveKey("test2");
 		searchField.setRecentSearchesSaveKey("test");
 		
-		rs = searchField.getRecentSearches();
+		rs = waitUntilLoaded(searchField.getRecentSearches());
 		assertSame(1, rs.getLength());
 		assertEquals("test1", rs.getRecentSearches()[0]);
 	}
 	
+	private RecentSearches waitUntilLoaded(RecentSearches rs) throws Exception {
+		while (rs.isLoading()) {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+				}
+			});
+		}
+		return rs;
+	}
+	
 	@Test
 	public void testManageRecentSearchesAndSetPopup() throws Exception {
 		searchField.setRecentSearchesSaveKey("test");
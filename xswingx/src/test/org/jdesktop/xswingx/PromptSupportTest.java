@@ -5,13 +5,18 @@ import static org.junit.Assert.assertNull;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 
+import javax.swing.JComponent;
 import javax.swing.JTextField;
+import javax.swing.RepaintManager;
 import javax.swing.plaf.basic.BasicTextFieldUI;
 
 import junit.framework.Assert;
 
 import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
 import org.jdesktop.xswingx.plaf.BuddyTextFieldUI;
 import org.jdesktop.xswingx.plaf.PromptTextFieldUI;
 import org.junit.Before;
@@ -25,6 +30,33 @@ public class PromptSupportTest {
 		txt = new JTextField();
 	}
 
+	@Test
+	public void testGettersDoNotCreateState() {
+		txt.putClientProperty(PromptSupport.PROMPT, "test");
+		final int[] events = new int[1];
+		txt.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				events[0]++;
+			}
+		});
+
+		assertEquals("test", PromptSupport.getPrompt(txt));
+		PromptSupport.getForeground(txt);
+		PromptSupport.getBackground(txt);
+		PromptSupport.getFocusBehavior(txt);
+		PromptSupport.getFontStyle(txt);
+		PromptSupport.getRenderingMode(txt);
+		BuddySupport.getLeft(txt);
+		BuddySupport.getOuterMargin(txt);
+		NativeSearchFieldSupport.isSearchField(txt);
+		NativeSearchFieldSupport.getFindPopupMenu(txt);
+		assertNull(TextComponentState.peek(txt));
+		assertEquals(0, events[0]);
+
+		PromptSupport.setPrompt("other", txt);
+		assertEquals("other", PromptSupport.getPrompt(txt));
+	}
+
 	@Test
 	public void testInit() {
 		PromptSupport.init("test", Color.LIGHT_GRAY, Color.YELLOW, txt);
@@ -46,6 +78,52 @@ public class PromptSupportTest {
 				txt.getUI().getClass());
 	}
 
+	@Test
+	public void testRepaintOnlyOnVisibleChange() throws Exception {
+		PromptSupport.setPrompt("test", txt);
+		txt.setSize(100, 30);
+		final int[] repaints = new int[1];
+		RepaintManager manager = RepaintManager.currentManager(txt);
+		RepaintManager.setCurrentManager(new RepaintManager() {
+			public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+				if (c == txt) {
+					repaints[0]++;
+				}
+			}
+		});
+		try {
+			PromptSupport.setForeground(Color.RED, txt);
+			assertEquals(1, repaints[0]);
+
+			PromptSupport.setForeground(Color.RED, txt);
+			PromptSupport.setPrompt("test", txt);
+			assertEquals(1, repaints[0]);
+
+			txt.setText("text");
+			repaints[0] = 0;
+			PromptSupport.setForeground(Color.BLUE, txt);
+			PromptSupport.setPrompt("other", txt);
+			assertEquals(0, repaints[0]);
+		} finally {
+			RepaintManager.setCurrentManager(manager);
+		}
+	}
+
+	@Test
+	public void testClientPropertiesPutDirectly() throws Exception {
+		PromptSupport.setPrompt("test", txt);
+		txt.putClientProperty(PromptSupport.PROMPT, "direct");
+		txt.putClientProperty(PromptSupport.FOREGROUND, Color.RED);
+		txt.putClientProperty(PromptSupport.FOCUS_BEHAVIOR, FocusBehavior.SHOW_PROMPT);
+
+		assertEquals("direct", PromptSupport.getPrompt(txt));
+		assertEquals(Color.RED, PromptSupport.getForeground(txt));
+		assertEquals(FocusBehavior.SHOW_PROMPT, PromptSupport.getFocusBehavior(txt));
+
+		txt.putClientProperty(PromptSupport.FOREGROUND, null);
+		assertEquals(txt.getDisabledTextColor(), PromptSupport.getForeground(txt));
+	}
+
 	@Test
 	public void testGetFocusBehavior() throws Exception {
 		assertEquals(FocusBehavior.HIDE_PROMPT, PromptSupport.getFocusBehavior(txt));
@@ -118,4 +196,12 @@ public class PromptSupportTest {
 		assertEquals(Font.BOLD, PromptSupport.getFontStyle(txt));
 		assertEquals(Font.BOLD, txt.getClientProperty(PromptSupport.FONT_STYLE));
 	}
+
+	@Test
+	public void testRenderingMode() throws Exception {
+		assertEquals(RenderingMode.COMPONENT, PromptSupport.getRenderingMode(txt));
+		PromptSupport.setRenderingMode(RenderingMode.DIRECT, txt);
+		assertEquals(RenderingMode.DIRECT, PromptSupport.getRenderingMode(txt));
+		assertEquals(RenderingMode.DIRECT, txt.getClientProperty(PromptSupport.RENDERING_MODE));
+	}
 }
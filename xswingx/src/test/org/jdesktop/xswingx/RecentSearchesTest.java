@@ -1,11 +1,33 @@
 package org.jdesktop.xswingx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.prefs.AbstractPreferences;
 import java.util.prefs.Preferences;
 
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JList;
+import javax.swing.JMenuItem;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.PopupMenuEvent;
+
+import org.jdesktop.xswingx.RecentSearches.RecentSearchesListPopup;
+import org.jdesktop.xswingx.RecentSearches.RecentSearchesPopup;
+import org.jdesktop.xswingx.RecentSearchesEvent.Type;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -101,4 +123,297 @@ public class RecentSearchesTest {
 		assertSame(0, searchHistory.getChangeListeners().length);
 		assertNull(searchField.getFindPopupMenu());
 	}
+
+	@Test
+	public void testFilteringPopup() throws Exception {
+		JXSearchField searchField = new JXSearchField("Search");
+		searchHistory.install(searchField);
+		searchHistory.setFilteringPopup(true);
+
+		assertTrue(searchField.getFindPopupMenu() instanceof RecentSearchesListPopup);
+		assertSame(1, searchHistory.getChangeListeners().length);
+
+		searchHistory.put("apple");
+		searchHistory.put("banana");
+		searchHistory.put("Pineapple");
+		flushEvents();
+		RecentSearchesListPopup popup = (RecentSearchesListPopup) searchField.getFindPopupMenu();
+		JList list = popup.getList();
+		// not filtered while hidden
+		assertSame(0, list.getModel().getSize());
+		popup.popupMenuWillBecomeVisible(new PopupMenuEvent(popup));
+		assertSame(3, list.getModel().getSize());
+
+		searchField.setText("APP");
+		assertSame(3, list.getModel().getSize());
+		popup.popupMenuWillBecomeVisible(new PopupMenuEvent(popup));
+		assertSame(2, list.getModel().getSize());
+		assertEquals("Pineapple", list.getModel().getElementAt(0));
+		assertEquals("apple", list.getModel().getElementAt(1));
+		assertSame(2, list.getVisibleRowCount());
+
+		searchHistory.uninstall(searchField);
+		assertSame(0, searchHistory.getChangeListeners().length);
+		assertNull(searchField.getFindPopupMenu());
+	}
+
+	@Test
+	public void testFilteringPopupKeyBindings() throws Exception {
+		JXSearchField searchField = new JXSearchField("Search");
+		final int[] actions = new int[1];
+		KeyStroke down = KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0);
+		KeyStroke enter = KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0);
+		searchField.getInputMap().put(down, "test-down");
+		searchField.getActionMap().put("test-down", new AbstractAction() {
+			public void actionPerformed(ActionEvent e) {
+				actions[0]++;
+			}
+		});
+		Object enterBinding = searchField.getInputMap().get(enter);
+
+		searchHistory.install(searchField);
+		searchHistory.setFilteringPopup(true);
+		assertNotSame("test-down", searchField.getInputMap().get(down));
+		assertNotSame(enterBinding, searchField.getInputMap().get(enter));
+
+		// delegates to the previously bound action while the popup is hidden
+		Action action = searchField.getActionMap().get(searchField.getInputMap().get(down));
+		action.actionPerformed(new ActionEvent(searchField, ActionEvent.ACTION_PERFORMED, null));
+		assertSame(1, actions[0]);
+
+		searchHistory.uninstall(searchField);
+		assertSame("test-down", searchField.getInputMap().get(down));
+		assertSame(enterBinding, searchField.getInputMap().get(enter));
+	}
+
+	@Test
+	public void testChangeEvents() throws Exception {
+		final List<RecentSearchesEvent> events = new ArrayList<RecentSearchesEvent>();
+		searchHistory.setMaxRecents(2);
+		searchHistory.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				events.add((RecentSearchesEvent) e);
+			}
+		});
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				searchHistory.put("search1");
+				searchHistory.put("search2");
+				searchHistory.put("search1");
+				searchHistory.put("search3");
+				searchHistory.removeAll();
+			}
+		});
+
+		assertSame(6, events.size());
+		assertSame(Type.INSERTED, events.get(0).getType());
+		assertSame(Type.INSERTED, events.get(1).getType());
+		assertSame(Type.MOVED_TO_FRONT, events.get(2).getType());
+		assertSame(1, events.get(2).getFromIndex());
+		assertSame(Type.INSERTED, events.get(3).getType());
+		assertSame(3, events.get(3).getRecentSearches().length);
+		assertSame(Type.REMOVED, events.get(4).getType());
+		assertEquals("search2", events.get(4).getSearchString());
+		assertSame(2, events.get(4).getIndex());
+		assertSame(Type.CLEARED, events.get(5).getType());
+	}
+
+	@Test
+	public void testConcurrentPut() throws Exception {
+		final List<String> mirror = new ArrayList<String>();
+		final boolean[] offEDT = new boolean[1];
+		searchHistory.setMaxRecents(10);
+		searchHistory.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				offEDT[0] |= !SwingUtilities.isEventDispatchThread();
+				RecentSearchesEvent rse = (RecentSearchesEvent) e;
+				switch (rse.getType()) {
+				case INSERTED:
+					mirror.add(rse.getIndex(), rse.getSearchString());
+					break;
+				case MOVED_TO_FRONT:
+					mirror.add(0, mirror.remove(rse.getFromIndex()));
+					break;
+				case REMOVED:
+					mirror.remove(rse.getIndex());
+					break;
+				default:
+					mirror.clear();
+					mirror.addAll(Arrays.asList(rse.getRecentSearches()));
+				}
+			}
+		});
+
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+			final int producer = i;
+			producers[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 500; j++) {
+						searchHistory.put("search" + (producer * 7 + j) % 25);
+					}
+				}
+			};
+			producers[i].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		flushEvents();
+
+		assertTrue(!offEDT[0]);
+		assertSame(10, searchHistory.getLength());
+		assertEquals(Arrays.asList(searchHistory.getRecentSearches()), mirror);
+	}
+
+	@Test
+	public void testPopupUpdates() throws Exception {
+		RecentSearchesPopup popup = new RecentSearchesPopup(searchHistory, new JXSearchField());
+		searchHistory.put("search1");
+		searchHistory.put("search2");
+		searchHistory.put("search3");
+		flushEvents();
+
+		// title, 3 searches, separator, clear
+		assertSame(6, popup.getComponentCount());
+		JMenuItem item = (JMenuItem) popup.getComponent(3);
+		assertEquals("search1", item.getText());
+
+		searchHistory.put("search1");
+		flushEvents();
+		assertSame(6, popup.getComponentCount());
+		assertSame(item, popup.getComponent(1));
+		assertEquals("search3", ((JMenuItem) popup.getComponent(2)).getText());
+
+		searchHistory.setMaxRecents(1);
+		searchHistory.put("search4");
+		flushEvents();
+		assertSame(6, popup.getComponentCount());
+		assertEquals("search4", ((JMenuItem) popup.getComponent(1)).getText());
+		assertEquals("search3", ((JMenuItem) popup.getComponent(3)).getText());
+
+		searchHistory.removeAll();
+		flushEvents();
+		assertSame(1, popup.getComponentCount());
+	}
+
+	@Test
+	public void testLoadInBackground() throws Exception {
+		searchHistory.put("search1");
+		searchHistory.put("search2");
+
+		// keep the preferences worker busy until the list has been created
+		BlockingPreferences blocking = new BlockingPreferences();
+		new RecentSearches(blocking, "search.test", true);
+
+		final RecentSearches[] rs = new RecentSearches[1];
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					rs[0] = new RecentSearches(null, "search.test", true);
+					assertTrue(rs[0].isLoading());
+					rs[0].put("search3");
+					rs[0].put("search1");
+				}
+			});
+		} finally {
+			blocking.latch.countDown();
+		}
+		while (rs[0].isLoading()) {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+				}
+			});
+		}
+
+		assertSame(3, rs[0].getLength());
+		assertEquals("search1", rs[0].getRecentSearches()[0]);
+		assertEquals("search3", rs[0].getRecentSearches()[1]);
+		assertEquals("search2", rs[0].getRecentSearches()[2]);
+		assertSame(3, new RecentSearches("search.test").getLength());
+	}
+
+	@Test
+	public void testNoCoalescedEventAfterLoad() throws Exception {
+		searchHistory.put("search1");
+		searchHistory.put("search2");
+
+		RecentSearches rs = new RecentSearches("search.test");
+		assertSame(2, rs.getLength());
+		final List<RecentSearchesEvent> events = new ArrayList<RecentSearchesEvent>();
+		rs.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				events.add((RecentSearchesEvent) e);
+			}
+		});
+
+		rs.put("search3");
+		flushEvents();
+		assertSame(1, events.size());
+		assertSame(Type.INSERTED, events.get(0).getType());
+	}
+
+	/**
+	 * A preferences node, which blocks the preferences worker until
+	 * <code>latch</code> is released.
+	 */
+	private static class BlockingPreferences extends AbstractPreferences {
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		BlockingPreferences() {
+			super(null, "");
+		}
+
+		public Preferences node(String path) {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Preferences.userRoot().node("search.test.blocking");
+		}
+
+		protected AbstractPreferences childSpi(String name) {
+			throw new UnsupportedOperationException();
+		}
+
+		protected String[] childrenNamesSpi() {
+			return new String[0];
+		}
+
+		protected void flushSpi() {
+		}
+
+		protected String getSpi(String key) {
+			return null;
+		}
+
+		protected String[] keysSpi() {
+			return new String[0];
+		}
+
+		protected void putSpi(String key, String value) {
+		}
+
+		protected void removeNodeSpi() {
+		}
+
+		protected void removeSpi(String key) {
+		}
+
+		protected void syncSpi() {
+		}
+	}
+
+	/**
+	 * Waits until all change events fired so far have been delivered on the
+	 * event dispatch thread.
+	 */
+	private static void flushEvents() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+			}
+		});
+	}
 }
@@ -0,0 +1,166 @@
+package org.jdesktop.xswingx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.xswingx.SearchResultCache.ResultHandler;
+import org.jdesktop.xswingx.SearchResultCache.SearchProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchResultCacheTest {
+	private RecentSearches recentSearches;
+
+	private SearchResultCache<String> cache;
+
+	private final List<Runnable> pendingSearches = new ArrayList<Runnable>();
+
+	private final List<String> shown = new ArrayList<String>();
+
+	private int searches;
+
+	@Before
+	public void setUp() {
+		recentSearches = new RecentSearches(null);
+		cache = new SearchResultCache<String>(recentSearches, new SearchProvider<String>() {
+			public String search(String searchString) {
+				return searchString + (++searches);
+			}
+		}, new ResultHandler<String>() {
+			public void showResults(String searchString, String results, boolean cached) {
+				shown.add(results + (cached ? " cached" : ""));
+			}
+		}, new Executor() {
+			public void execute(Runnable command) {
+				pendingSearches.add(command);
+			}
+		});
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				recentSearches.put("test");
+				cache.search("test");
+			}
+		});
+		runSearches();
+		assertEquals("[test1]", shown.toString());
+		assertEquals("test1", cache.getCachedResults("test"));
+
+		shown.clear();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				cache.search("test");
+			}
+		});
+		assertEquals("[test1 cached]", shown.toString());
+		runSearches();
+		assertEquals("[test1 cached, test2]", shown.toString());
+		assertEquals("test2", cache.getCachedResults("test"));
+	}
+
+	@Test
+	public void testOnlyRecentSearchesCached() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				cache.search("test");
+			}
+		});
+		runSearches();
+		assertNull(cache.getCachedResults("test"));
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				recentSearches.put("test");
+				cache.search("test");
+			}
+		});
+		runSearches();
+		assertEquals("test2", cache.getCachedResults("test"));
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				recentSearches.removeAll();
+			}
+		});
+		assertNull(cache.getCachedResults("test"));
+	}
+
+	@Test
+	public void testOutdatedResultsDiscarded() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				cache.search("first");
+				cache.search("second");
+			}
+		});
+		runSearches();
+		assertEquals("[second1]", shown.toString());
+		assertSame(1, searches);
+	}
+
+	@Test
+	public void testPendingSearchNotRepeated() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				cache.search("test");
+				cache.search("test");
+			}
+		});
+		assertSame(1, pendingSearches.size());
+		runSearches();
+		assertEquals("[test1]", shown.toString());
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				cache.search("test");
+			}
+		});
+		runSearches();
+		assertEquals("[test1, test2]", shown.toString());
+	}
+
+	@Test
+	public void testMaxEntries() throws Exception {
+		cache.setMaxEntries(2);
+		for (final String searchString : new String[] { "a", "b", "c" }) {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					recentSearches.put(searchString);
+					cache.search(searchString);
+				}
+			});
+			runSearches();
+		}
+		assertNull(cache.getCachedResults("a"));
+		assertEquals("c3", cache.getCachedResults("c"));
+
+		cache.setMaxEntries(1);
+		assertNull(cache.getCachedResults("b"));
+		assertSame(1, cache.getMaxEntries());
+	}
+
+	/**
+	 * Runs all pending searches and waits until their results have been
+	 * handled.
+	 */
+	private void runSearches() throws Exception {
+		for (Runnable search : pendingSearches) {
+			search.run();
+		}
+		pendingSearches.clear();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+			}
+		});
+	}
+}
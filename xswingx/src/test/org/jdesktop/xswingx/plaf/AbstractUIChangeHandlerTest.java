@@ -2,6 +2,7 @@ package org.jdesktop.xswingx.plaf;
 
 
 import java.beans.PropertyChangeEvent;
+import java.lang.ref.WeakReference;
 
 import javax.swing.JTextField;
 
@@ -48,4 +49,36 @@ public class AbstractUIChangeHandlerTest {
 		tf.updateUI();
 		Assert.assertFalse(changed);
 	}
+	
+	@Test
+	public void testInstalledComponentsCollected() throws Exception {
+		JTextField other = new JTextField();
+		ch.install(other);
+		ch.install(tf);
+		Assert.assertEquals(2, ch.getInstalledCount());
+		
+		WeakReference<JTextField> ref = new WeakReference<JTextField>(other);
+		other = null;
+		collect(ref);
+		Assert.assertNull(ref.get());
+		Assert.assertEquals(1, ch.getInstalledCount());
+		Assert.assertTrue(ch.isInstalled(tf));
+	}
+	
+	@Test
+	public void testWrappedComponentsCollected() throws Exception {
+		JTextField txt = new JTextField();
+		TextUIWrapper.getDefaultWrapper().install(txt, true);
+		WeakReference<JTextField> ref = new WeakReference<JTextField>(txt);
+		txt = null;
+		collect(ref);
+		Assert.assertNull(ref.get());
+	}
+	
+	static void collect(WeakReference<?> ref) throws InterruptedException {
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+	}
 }
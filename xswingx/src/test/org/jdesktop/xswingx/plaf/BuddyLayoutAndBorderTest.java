@@ -1,7 +1,12 @@
 package org.jdesktop.xswingx.plaf;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Insets;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -55,6 +60,36 @@ public class BuddyLayoutAndBorderTest {
 		assertSame(txtWidth, blab.preferredLayoutSize(textField).width);
 	}
 
+	@Test
+	public void testPreferredSizeMemoized() throws Exception {
+		final int[] queries = new int[1];
+		JButton btn = new JButton("hey") {
+			public Dimension getPreferredSize() {
+				queries[0]++;
+				return super.getPreferredSize();
+			}
+		};
+		JTextField textField = new JTextField();
+		BuddySupport.addLeft(btn, textField);
+		BuddyLayoutAndBorder layout = (BuddyLayoutAndBorder) textField.getLayout();
+		textField.addNotify();
+		textField.validate();
+
+		Dimension size = layout.preferredLayoutSize(textField);
+		queries[0] = 0;
+		layout.preferredLayoutSize(textField).height = 0;
+		assertEquals(size, layout.preferredLayoutSize(textField));
+		assertSame(0, queries[0]);
+
+		btn.setFont(btn.getFont().deriveFont(40f));
+		assertTrue(layout.preferredLayoutSize(textField).height > size.height);
+
+		textField.validate();
+		size = layout.preferredLayoutSize(textField);
+		BuddySupport.setOuterMargin(textField, new Insets(5, 5, 5, 5));
+		assertEquals(size.height + 10, layout.preferredLayoutSize(textField).height);
+	}
+
 	@Test
 	public void testBorderInsets() throws Exception {
 		JButton btn = new JButton("hey");
@@ -69,4 +104,30 @@ public class BuddyLayoutAndBorderTest {
 		btn.setVisible(false);
 		assertSame(left, blab.getBorderInsets(textField).left);
 	}
+
+	@Test
+	public void testBorderInsetsCached() throws Exception {
+		JButton btn = new JButton("hey");
+		JTextField textField = new JTextField();
+		BuddySupport.addLeft(btn, textField);
+		BuddyLayoutAndBorder layout = (BuddyLayoutAndBorder) textField.getLayout();
+		textField.addNotify();
+		textField.validate();
+
+		Insets insets = layout.getBorderInsets(textField);
+		layout.getBorderInsets(textField).left = -1;
+		assertEquals(insets, layout.getBorderInsets(textField));
+		Insets realInsets = layout.getRealBorderInsets();
+		layout.getRealBorderInsets().left = -1;
+		assertEquals(realInsets, layout.getRealBorderInsets());
+
+		btn.setVisible(false);
+		assertEquals(insets.left - btn.getPreferredSize().width, layout.getBorderInsets(textField).left);
+
+		textField.setMargin(new Insets(1, 2, 3, 4));
+		Insets delegateInsets = (Insets) layout.getBorderDelegate().getBorderInsets(textField).clone();
+		assertEquals(new Insets(delegateInsets.top - 1, delegateInsets.left - 2, delegateInsets.bottom - 3,
+				delegateInsets.right - 4), layout.getRealBorderInsets());
+		assertEquals(delegateInsets, layout.getBorderDelegate().getBorderInsets(textField));
+	}
 }
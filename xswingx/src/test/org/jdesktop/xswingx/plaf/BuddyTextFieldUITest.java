@@ -1,8 +1,55 @@
 package org.jdesktop.xswingx.plaf;
 
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.jdesktop.xswingx.BuddySupport;
+import org.jdesktop.xswingx.PromptSupport;
 import org.junit.Test;
 
 
 public class BuddyTextFieldUITest {
-	
+	@Test
+	public void testPreferredWidthFollowsBuddies() throws Exception {
+		// a field, which is valid once laid out, like a displayed field
+		JTextField textField = new JTextField() {
+			private boolean valid;
+
+			public boolean isValid() {
+				return valid;
+			}
+
+			public void validate() {
+				valid = true;
+			}
+
+			public void invalidate() {
+				super.invalidate();
+				valid = false;
+			}
+		};
+		new JPanel().add(textField);
+		PromptSupport.setPrompt("", textField);
+		TextUIWrapper.getDefaultWrapper().install(textField, true);
+
+		textField.validate();
+		int width = textField.getPreferredSize().width;
+
+		JLabel buddy = new JLabel();
+		buddy.setPreferredSize(new Dimension(50, 10));
+		BuddySupport.addRight(buddy, textField);
+		assertTrue(textField.getPreferredSize().width >= width + 50);
+		textField.validate();
+		assertTrue(textField.getPreferredSize().width >= width + 50);
+
+		buddy.setVisible(false);
+		assertTrue(textField.getPreferredSize().width < width + 50);
+		textField.validate();
+		assertTrue(textField.getPreferredSize().width < width + 50);
+	}
 }
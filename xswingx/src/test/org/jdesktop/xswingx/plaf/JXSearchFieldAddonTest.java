@@ -0,0 +1,28 @@
+package org.jdesktop.xswingx.plaf;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Icon;
+import javax.swing.UIDefaults;
+import javax.swing.plaf.UIResource;
+
+import org.junit.Test;
+
+public class JXSearchFieldAddonTest {
+	@Test
+	public void testIconsLoadedLazily() throws Exception {
+		List<Object> defaults = new ArrayList<Object>();
+		new JXSearchFieldAddon().addBasicDefaults(null, defaults);
+
+		Object icon = defaults.get(defaults.indexOf("SearchField.icon") + 1);
+		assertTrue(icon instanceof UIDefaults.LazyValue);
+
+		Object value = ((UIDefaults.LazyValue) icon).createValue(new UIDefaults());
+		assertTrue(value instanceof Icon);
+		assertTrue(value instanceof UIResource);
+		assertTrue(((Icon) value).getIconWidth() > 0);
+	}
+}
@@ -0,0 +1,107 @@
+package org.jdesktop.xswingx.plaf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import javax.swing.text.JTextComponent;
+
+import org.jdesktop.xswingx.JXTextArea;
+import org.jdesktop.xswingx.JXTextField;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PromptImageCacheTest {
+	private BufferedImage image = new BufferedImage(100, 30, BufferedImage.TYPE_INT_RGB);
+
+	@Before
+	public void setup() {
+		PromptImageCache.clear();
+	}
+
+	@After
+	public void tearDown() {
+		PromptImageCache.setMemoryBudget(4 * 1024 * 1024);
+		PromptImageCache.clear();
+	}
+
+	@Test
+	public void testSharedImages() throws Exception {
+		paint(createField("prompt"));
+		long usage = PromptImageCache.getMemoryUsage();
+		assertTrue(usage > 0);
+
+		paint(createField("prompt"));
+		assertEquals(usage, PromptImageCache.getMemoryUsage());
+
+		paint(createField("other prompt"));
+		assertEquals(2 * usage, PromptImageCache.getMemoryUsage());
+	}
+
+	@Test
+	public void testLineWrap() throws Exception {
+		JXTextArea wrapped = createArea("a long prompt, which is wrapped");
+		wrapped.setLineWrap(true);
+		paint(wrapped);
+		long usage = PromptImageCache.getMemoryUsage();
+
+		paint(createArea("a long prompt, which is wrapped"));
+		assertEquals(2 * usage, PromptImageCache.getMemoryUsage());
+	}
+
+	@Test
+	public void testPaintedPrompt() throws Exception {
+		JXTextField txt = createField("prompt");
+		paint(txt);
+		paint(txt);
+
+		boolean painted = false;
+		for (int x = 0; x < image.getWidth(); x++) {
+			for (int y = 0; y < image.getHeight(); y++) {
+				painted |= image.getRGB(x, y) == Color.RED.getRGB();
+			}
+		}
+		assertTrue(painted);
+	}
+
+	@Test
+	public void testMemoryBudget() throws Exception {
+		paint(createField("prompt"));
+		long usage = PromptImageCache.getMemoryUsage();
+
+		PromptImageCache.setMemoryBudget(usage);
+		paint(createField("other prompt"));
+		assertEquals(usage, PromptImageCache.getMemoryUsage());
+
+		PromptImageCache.setMemoryBudget(usage - 1);
+		assertEquals(0L, PromptImageCache.getMemoryUsage());
+
+		paint(createField("prompt"));
+		assertEquals(0L, PromptImageCache.getMemoryUsage());
+	}
+
+	private JXTextField createField(String prompt) {
+		JXTextField txt = new JXTextField(prompt, Color.RED);
+		txt.setPromptRenderingMode(RenderingMode.IMAGE);
+		txt.setSize(image.getWidth(), image.getHeight());
+		return txt;
+	}
+
+	private JXTextArea createArea(String prompt) {
+		JXTextArea txt = new JXTextArea(prompt, Color.RED);
+		txt.setPromptRenderingMode(RenderingMode.IMAGE);
+		txt.setSize(image.getWidth(), image.getHeight());
+		return txt;
+	}
+
+	private void paint(JTextComponent txt) {
+		Graphics g = image.getGraphics();
+		txt.getUI().paint(g, txt);
+		g.dispose();
+	}
+}
@@ -0,0 +1,129 @@
+package org.jdesktop.xswingx.plaf;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JButton;
+import javax.swing.JTextField;
+
+import org.jdesktop.xswingx.BuddySupport;
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.FocusBehavior;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PromptLayerTest {
+	private JTextField txt;
+
+	@Before
+	public void setup() {
+		txt = new JTextField();
+	}
+
+	@Test
+	public void testUINotWrapped() throws Exception {
+		PromptSupport.setPrompt("prompt", txt);
+		assertTrue(txt.getUI() instanceof PromptTextUI);
+
+		new PromptLayer(txt);
+		assertFalse(txt.getUI() instanceof PromptTextUI);
+
+		PromptSupport.setPrompt("other", txt);
+		txt.updateUI();
+		assertFalse(txt.getUI() instanceof PromptTextUI);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecorateTwice() throws Exception {
+		new PromptLayer(txt);
+		new PromptLayer(txt);
+	}
+
+	@Test
+	public void testBuddiesKeptOnUIChange() throws Exception {
+		new PromptLayer(txt);
+		JButton button = new JButton();
+		BuddySupport.addLeft(button, txt);
+		assertSame(txt, button.getParent());
+		assertTrue(txt.getLayout() instanceof BuddyLayoutAndBorder);
+
+		txt.updateUI();
+		assertSame(txt, button.getParent());
+		assertTrue(txt.getLayout() instanceof BuddyLayoutAndBorder);
+		assertTrue(txt.getBorder() instanceof BuddyLayoutAndBorder);
+	}
+
+	@Test
+	public void testPaintPrompt() throws Exception {
+		PromptSupport.setPrompt("WWWWW", txt);
+		PromptSupport.setForeground(Color.RED, txt);
+		PromptLayer layer = new PromptLayer(txt);
+		layer.setSize(200, 30);
+		layer.doLayout();
+		assertTrue(containsRed(paint(layer)));
+
+		txt.setText("x");
+		assertFalse(containsRed(paint(layer)));
+	}
+
+	@Test
+	public void testHighlightPrompt() throws Exception {
+		final boolean[] focused = new boolean[1];
+		txt = new JTextField() {
+			public boolean isFocusOwner() {
+				return focused[0];
+			}
+		};
+		txt.setSelectionColor(Color.BLUE);
+		txt.setSelectedTextColor(Color.GREEN);
+		PromptSupport.setPrompt("WWWWW", txt);
+		PromptSupport.setForeground(Color.RED, txt);
+		PromptSupport.setFocusBehavior(FocusBehavior.HIGHLIGHT_PROMPT, txt);
+		PromptLayer layer = new PromptLayer(txt);
+		layer.setSize(200, 30);
+		layer.doLayout();
+		assertTrue(containsRed(paint(layer)));
+
+		focused[0] = true;
+		BufferedImage image = paint(layer);
+		assertFalse(containsRed(image));
+		assertTrue(contains(image, Color.BLUE));
+		assertTrue(contains(image, Color.GREEN));
+	}
+
+	private BufferedImage paint(PromptLayer layer) {
+		BufferedImage image = new BufferedImage(layer.getWidth(), layer.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		layer.paint(g);
+		g.dispose();
+		return image;
+	}
+
+	private boolean contains(BufferedImage image, Color color) {
+		for (int x = 0; x < image.getWidth(); x++) {
+			for (int y = 0; y < image.getHeight(); y++) {
+				if (image.getRGB(x, y) == color.getRGB()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean containsRed(BufferedImage image) {
+		for (int x = 0; x < image.getWidth(); x++) {
+			for (int y = 0; y < image.getHeight(); y++) {
+				Color c = new Color(image.getRGB(x, y));
+				if (c.getRed() > 200 && c.getGreen() < 60 && c.getBlue() < 60) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
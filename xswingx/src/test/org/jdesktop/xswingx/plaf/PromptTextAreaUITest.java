@@ -1,10 +1,22 @@
 package org.jdesktop.xswingx.plaf;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 
 import javax.swing.JTextArea;
+import javax.swing.text.JTextComponent;
 
 import org.jdesktop.xswingx.JXTextArea;
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
 import org.junit.Test;
 
 public class PromptTextAreaUITest extends PromptTextUITest {
@@ -25,4 +37,92 @@ public class PromptTextAreaUITest extends PromptTextUITest {
         assertEquals(textArea.getRows(), lbl.getRows());
         assertEquals(textArea.getColumns(), lbl.getColumns());
     }
+
+    @Test
+    public void testPromptComponentNotShared() {
+        JXTextArea other = new JXTextArea();
+        TextUIWrapper.getDefaultWrapper().install(other, true);
+        PromptTextUI otherUI = (PromptTextUI) other.getUI();
+        PromptSupport.setPrompt("prompt", textArea);
+        PromptSupport.setPrompt("other prompt", other);
+
+        JTextComponent lbl = ui.getPromptComponent(textArea);
+        final int[] changes = new int[1];
+        PropertyChangeListener counter = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                changes[0]++;
+            }
+        };
+        lbl.addPropertyChangeListener(counter);
+        assertNotSame(lbl, otherUI.getPromptComponent(other));
+        assertSame(lbl, ui.getPromptComponent(textArea));
+        assertEquals("prompt", lbl.getText());
+        assertSame(0, changes[0]);
+        lbl.removePropertyChangeListener(counter);
+    }
+
+    @Test
+    public void testWrappedPrompt() {
+        PromptSupport.setPrompt("wrapped prompt text", textArea);
+        PromptSupport.setForeground(Color.RED, textArea);
+        PromptSupport.setRenderingMode(RenderingMode.DIRECT, textArea);
+        textArea.setSize(50, 200);
+        int lineHeight = textArea.getFontMetrics(textArea.getFont()).getHeight();
+
+        textArea.setLineWrap(true);
+        assertTrue(getLowestPromptPixel() > lineHeight * 2);
+
+        textArea.setLineWrap(false);
+        assertTrue(getLowestPromptPixel() < lineHeight + textArea.getInsets().top);
+    }
+
+    @Test
+    public void testWrapStyleWord() {
+        PromptSupport.setPrompt("i wwwwwwwwwwwwwwwwwwww", textArea);
+        PromptSupport.setForeground(Color.RED, textArea);
+        PromptSupport.setRenderingMode(RenderingMode.DIRECT, textArea);
+        textArea.setSize(50, 200);
+        textArea.setLineWrap(true);
+        int firstLine = textArea.getInsets().top + textArea.getFontMetrics(textArea.getFont()).getHeight();
+
+        textArea.setWrapStyleWord(true);
+        int wordWrapped = getRightmostPromptPixel(firstLine);
+
+        textArea.setWrapStyleWord(false);
+        assertTrue(getRightmostPromptPixel(firstLine) > wordWrapped);
+    }
+
+    private int getLowestPromptPixel() {
+        BufferedImage image = paintPrompt();
+        int lowest = -1;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) == Color.RED.getRGB()) {
+                    lowest = Math.max(lowest, y);
+                }
+            }
+        }
+        return lowest;
+    }
+
+    private int getRightmostPromptPixel(int height) {
+        BufferedImage image = paintPrompt();
+        int rightmost = -1;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < height; y++) {
+                if (image.getRGB(x, y) == Color.RED.getRGB()) {
+                    rightmost = Math.max(rightmost, x);
+                }
+            }
+        }
+        return rightmost;
+    }
+
+    private BufferedImage paintPrompt() {
+        BufferedImage image = new BufferedImage(50, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        ui.paint(g, textArea);
+        g.dispose();
+        return image;
+    }
 }
@@ -1,10 +1,19 @@
 package org.jdesktop.xswingx.plaf;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JComponent;
 import javax.swing.JTextField;
+import javax.swing.plaf.basic.BasicTextFieldUI;
 
 import org.jdesktop.xswingx.JXTextField;
+import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
 import org.junit.Test;
 
 public class PromptTextFieldUITest extends PromptTextUITest {
@@ -23,4 +32,49 @@ public class PromptTextFieldUITest extends PromptTextUITest {
         assertEquals(txtField.getHorizontalAlignment(), lbl.getHorizontalAlignment());
         assertEquals(txtField.getColumns(), lbl.getColumns());
     }
+
+    @Test
+    public void testPreferredSizeFollowsColumns() {
+        PromptSupport.setPrompt("label text", txtField);
+        int width = ui.getPreferredSize(txtField).width;
+
+        txtField.setColumns(40);
+        assertTrue(ui.getPreferredSize(txtField).width > width);
+        assertEquals(ui.getPromptComponent(txtField).getPreferredSize(), ui.getPreferredSize(txtField));
+    }
+
+    @Test
+    public void testNonOpaqueBackgroundPaintedByDelegate() {
+        JTextField field = new JTextField();
+        // paints the background regardless of the opaque property, like Synth
+        field.setUI(new PromptTextFieldUI(new BasicTextFieldUI() {
+            public void update(Graphics g, JComponent c) {
+                g.setColor(Color.GREEN);
+                g.fillRect(0, 0, c.getWidth(), c.getHeight());
+                paint(g, c);
+            }
+        }));
+        field.setOpaque(false);
+        field.setSize(100, 30);
+        PromptSupport.setPrompt("test", field);
+        PromptSupport.setForeground(Color.RED, field);
+
+        // the UI of the prompt component paints its background otherwise
+        for (RenderingMode mode : new RenderingMode[] { RenderingMode.DIRECT, RenderingMode.IMAGE }) {
+            PromptSupport.setRenderingMode(mode, field);
+            BufferedImage image = new BufferedImage(100, 30, BufferedImage.TYPE_INT_RGB);
+            Graphics g = image.getGraphics();
+            field.getUI().update(g, field);
+            g.dispose();
+
+            assertEquals(mode.toString(), Color.GREEN.getRGB(), image.getRGB(99, 29));
+            boolean painted = false;
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    painted |= image.getRGB(x, y) == Color.RED.getRGB();
+                }
+            }
+            assertTrue(mode.toString(), painted);
+        }
+    }
 }
@@ -4,20 +4,37 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.swing.BorderFactory;
+import javax.swing.JTextField;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 
 import org.jdesktop.swingx.util.JVM;
+import org.jdesktop.xswingx.JXSearchField;
 import org.jdesktop.xswingx.PromptSupport;
+import org.jdesktop.xswingx.PromptSupport.RenderingMode;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -44,6 +61,18 @@ public abstract class PromptTextUITest {
     	}
     }
 
+    @Test
+    public void testBaselineFollowsChanges() {
+        if (!JVM.current().isOrLater(JVM.JDK1_6)) {
+            return;
+        }
+        int baseline = ui.getBaseline(textComponent, 100, 100);
+        assertSame(baseline, ui.getBaseline(textComponent, 100, 100));
+
+        textComponent.setFont(textComponent.getFont().deriveFont(40f));
+        assertTrue(baseline != ui.getBaseline(textComponent, 100, 100));
+    }
+
     @Test
     public void testInstallUI() {
         textComponent.setUI(ui);
@@ -118,10 +147,214 @@ public abstract class PromptTextUITest {
         assertFalse(textComponent.getPreferredSize().equals(ui.getPromptComponent(textComponent).getPreferredSize()));
     }
     
+    @Test
+    public void testPreferredSizeMemoized() {
+        PromptSupport.setPrompt("label text", textComponent);
+        Dimension size = ui.getPreferredSize(textComponent);
+        ui.getPreferredSize(textComponent).width = 0;
+        assertEquals(size, ui.getPreferredSize(textComponent));
+
+        PromptSupport.setFontStyle(Font.BOLD, textComponent);
+        textComponent.setFont(textComponent.getFont().deriveFont(40f));
+        assertTrue(ui.getPreferredSize(textComponent).height > size.height);
+
+        PromptSupport.setPrompt("a much longer label text", textComponent);
+        assertEquals(ui.getPromptComponent(textComponent).getPreferredSize(), ui.getPreferredSize(textComponent));
+    }
+
     @Test
     public void testPromptSupportStaysInstalledOnUIChange() {
     	assertTrue(textComponent.getUI() instanceof PromptTextUI);
     	textComponent.updateUI();
     	assertTrue(textComponent.getUI() instanceof PromptTextUI);
     }
+
+    @Test
+    public void testPaintDirectly() throws Exception {
+        PromptSupport.setPrompt("test", textComponent);
+        PromptSupport.setForeground(Color.RED, textComponent);
+        PromptSupport.setRenderingMode(RenderingMode.DIRECT, textComponent);
+        textComponent.setSize(100, 30);
+        ui.promptComponent = null;
+
+        BufferedImage image = new BufferedImage(100, 30, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        ui.paint(g, textComponent);
+        g.dispose();
+        assertNull(ui.promptComponent);
+
+        boolean painted = false;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                painted |= image.getRGB(x, y) == Color.RED.getRGB();
+            }
+        }
+        assertTrue(painted);
+
+        Rectangle caret = ui.modelToView(textComponent, 0);
+        assertTrue(new Rectangle(textComponent.getSize()).contains(caret.getLocation()));
+        assertNull(ui.promptComponent);
+    }
+
+    @Test
+    public void testDesktopHintsRestored() throws Exception {
+        Map<?, ?> desktopHints = DirectPromptRenderer.getDesktopHints();
+        RenderingHints hints = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
+        hints.put(RenderingHints.KEY_TEXT_LCD_CONTRAST, 250);
+        DirectPromptRenderer.setDesktopHints(hints);
+        try {
+            PromptSupport.setPrompt("test", textComponent);
+            PromptSupport.setRenderingMode(RenderingMode.DIRECT, textComponent);
+            textComponent.setSize(100, 30);
+
+            Graphics2D g = new BufferedImage(100, 30, BufferedImage.TYPE_INT_RGB).createGraphics();
+            Object antialiasing = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+            Object contrast = g.getRenderingHint(RenderingHints.KEY_TEXT_LCD_CONTRAST);
+            ui.paint(g, textComponent);
+            assertEquals(antialiasing, g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING));
+            assertEquals(contrast, g.getRenderingHint(RenderingHints.KEY_TEXT_LCD_CONTRAST));
+            g.dispose();
+        } finally {
+            DirectPromptRenderer.setDesktopHints(desktopHints);
+        }
+    }
+
+    @Test
+    public void testPromptComponentOnlyConfiguredOnChange() throws Exception {
+        PromptSupport.setPrompt("test", textComponent);
+        final int[] changes = new int[1];
+        PropertyChangeListener counter = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                changes[0]++;
+            }
+        };
+        JTextComponent lbl = ui.getPromptComponent(textComponent);
+        lbl.addPropertyChangeListener(counter);
+
+        ui.getPromptComponent(textComponent);
+        assertSame(0, changes[0]);
+
+        textComponent.setSize(10, 10);
+        ui.getPromptComponent(textComponent);
+        assertEquals(textComponent.getBounds(), lbl.getBounds());
+
+        PromptSupport.setForeground(Color.BLUE, textComponent);
+        ui.getPromptComponent(textComponent);
+        assertEquals(Color.BLUE, lbl.getForeground());
+        lbl.removePropertyChangeListener(counter);
+    }
+
+    @Test
+    public void testPromptPathAllocationFree() throws Exception {
+        PromptSupport.setPrompt("test", textComponent);
+        char[] text = new char[1024 * 1024];
+        Arrays.fill(text, 'x');
+        textComponent.setText(new String(text));
+        textComponent.setSize(100, 30);
+        if (getAllocatedBytes() < 0) {
+            // allocation counting not supported by this VM
+            return;
+        }
+
+        assertTrue(getAllocatedBytes(new Callable<Object>() {
+            public Object call() {
+                for (int i = 0; i < 1000; i++) {
+                    assertFalse(ui.shouldPaintPrompt(textComponent));
+                }
+                return null;
+            }
+        }) < 4096);
+
+        textComponent.setText("");
+        assertTrue(getAllocatedBytes(new Callable<Object>() {
+            public Object call() {
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(ui.shouldPaintPrompt(textComponent));
+                    ui.getPromptComponent(textComponent);
+                }
+                return null;
+            }
+        }) < 4096);
+
+        // Painting through the prompt component or a cached image allocates
+        // inside Swing and Java2D, so only the direct rendering is counted.
+        // The component is validated like a displayed one, whose insets are
+        // remembered.
+        PromptSupport.setRenderingMode(RenderingMode.DIRECT, textComponent);
+        textComponent.addNotify();
+        textComponent.validate();
+        final Graphics g = new BufferedImage(100, 30, BufferedImage.TYPE_INT_RGB).getGraphics();
+        assertTrue(getAllocatedBytes(new Callable<Object>() {
+            public Object call() {
+                for (int i = 0; i < 1000; i++) {
+                    ui.paint(g, textComponent);
+                }
+                return null;
+            }
+        }) < 4096);
+        g.dispose();
+
+        // the document allocates its events and undoable edits, so typing in a
+        // search field is compared to typing in a plain text field
+        long typing = getTypingAllocatedBytes(new JTextField());
+        assertTrue(getTypingAllocatedBytes(new JXSearchField()) - typing < 4096);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread while 1000
+     * characters are inserted into and removed from the text of
+     * <code>txt</code>, which stays non-empty.
+     */
+    private static long getTypingAllocatedBytes(JTextComponent txt) throws Exception {
+        final Document doc = txt.getDocument();
+        doc.insertString(0, "test", null);
+        return getAllocatedBytes(new Callable<Object>() {
+            public Object call() throws BadLocationException {
+                for (int i = 0; i < 1000; i++) {
+                    doc.insertString(1, "x", null);
+                    doc.remove(1, 1);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the least number of bytes allocated by the current thread in
+     * one of three calls of <code>action</code>. The first call warms up the
+     * code, and allocations that only happen now and then, like those of a
+     * deoptimization, are ignored, while allocations of every call are not.
+     */
+    private static long getAllocatedBytes(Callable<?> action) throws Exception {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long allocated = getAllocatedBytes();
+            action.call();
+            least = Math.min(least, getAllocatedBytes() - allocated);
+        }
+        return least;
+    }
+
+    private static Method allocatedBytes;
+
+    /**
+     * Returns the number of bytes allocated by the current thread, or -1 if
+     * the VM does not support counting allocations.
+     */
+    private static long getAllocatedBytes() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (allocatedBytes == null) {
+                Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+                if (!beanClass.isInstance(bean)) {
+                    return -1;
+                }
+                allocatedBytes = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+            return (Long) allocatedBytes.invoke(bean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
 }
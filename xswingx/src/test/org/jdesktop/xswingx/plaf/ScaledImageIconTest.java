@@ -0,0 +1,87 @@
+package org.jdesktop.xswingx.plaf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.swing.DebugGraphics;
+
+import org.junit.Test;
+
+public class ScaledImageIconTest {
+	@Test
+	public void testSharedIcons() throws Exception {
+		assertSame(ScaledImageIcon.get(getClass().getResource("xswingx.properties")), ScaledImageIcon.get(getClass()
+				.getResource("xswingx.properties")));
+	}
+
+	@Test
+	public void testScaledImageReused() throws Exception {
+		ScaledImageIcon icon = new ScaledImageIcon(createImage());
+		BufferedImage scaled = icon.getScaledImage(2, 2);
+		assertEquals(20, scaled.getWidth());
+		assertEquals(10, scaled.getHeight());
+		assertSame(scaled, icon.getScaledImage(2, 2));
+		assertEquals(15, icon.getScaledImage(1.5, 1.5).getWidth());
+	}
+
+	@Test
+	public void testPaintScaled() throws Exception {
+		ScaledImageIcon icon = new ScaledImageIcon(createImage());
+		BufferedImage target = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = target.createGraphics();
+		g.scale(2, 2);
+		icon.paintIcon(null, g, 5, 5);
+		assertEquals(2.0, g.getTransform().getScaleX(), 0);
+		g.dispose();
+
+		assertEquals(Color.RED.getRGB(), target.getRGB(10, 10));
+		assertEquals(Color.RED.getRGB(), target.getRGB(29, 19));
+		assertEquals(Color.BLACK.getRGB(), target.getRGB(30, 20));
+		assertEquals(Color.BLACK.getRGB(), target.getRGB(9, 9));
+	}
+
+	@Test
+	public void testPaintPlainGraphics() throws Exception {
+		ScaledImageIcon icon = new ScaledImageIcon(createImage());
+		BufferedImage target = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+		Graphics g = target.createGraphics();
+		icon.paintIcon(null, new DebugGraphics(g), 5, 5);
+		g.dispose();
+
+		assertEquals(Color.RED.getRGB(), target.getRGB(5, 5));
+		assertEquals(Color.BLACK.getRGB(), target.getRGB(4, 4));
+	}
+
+	@Test
+	public void testSerializable() throws Exception {
+		ScaledImageIcon icon = new ScaledImageIcon(createImage());
+		icon.getScaledImage(2, 2);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(icon);
+		out.close();
+		ScaledImageIcon copy = (ScaledImageIcon) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+				.readObject();
+
+		assertEquals(20, copy.getScaledImage(2, 2).getWidth());
+	}
+
+	private BufferedImage createImage() {
+		BufferedImage image = new BufferedImage(10, 5, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = image.getGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 10, 5);
+		g.dispose();
+		return image;
+	}
+}
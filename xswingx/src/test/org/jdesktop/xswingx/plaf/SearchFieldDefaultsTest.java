@@ -0,0 +1,53 @@
+package org.jdesktop.xswingx.plaf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import javax.swing.LookAndFeel;
+import javax.swing.UIManager;
+
+import org.junit.Test;
+
+public class SearchFieldDefaultsTest {
+	@Test
+	public void testShared() throws Exception {
+		assertSame(SearchFieldDefaults.get(), SearchFieldDefaults.get());
+	}
+
+	@Test
+	public void testGetIcon() throws Exception {
+		assertSame(UIManager.getIcon("SearchField.icon"), SearchFieldDefaults.get().getIcon("SearchField.icon"));
+		assertSame(UIManager.getIcon("Tree.openIcon"), SearchFieldDefaults.get().getIcon("Tree.openIcon"));
+	}
+
+	@Test
+	public void testInvalidatedOnPut() throws Exception {
+		Object offset = UIManager.get("SearchField.popupOffset");
+		SearchFieldDefaults defaults = SearchFieldDefaults.get();
+
+		UIManager.put("unrelated", "value");
+		assertSame(defaults, SearchFieldDefaults.get());
+
+		try {
+			UIManager.put("SearchField.popupOffset", 7);
+			assertNotSame(defaults, SearchFieldDefaults.get());
+			assertEquals(7, SearchFieldDefaults.get().popupOffset);
+		} finally {
+			UIManager.put("SearchField.popupOffset", offset);
+			UIManager.put("unrelated", null);
+		}
+	}
+
+	@Test
+	public void testInvalidatedOnLookAndFeelChange() throws Exception {
+		LookAndFeel laf = UIManager.getLookAndFeel();
+		SearchFieldDefaults defaults = SearchFieldDefaults.get();
+		try {
+			UIManager.setLookAndFeel(laf.getClass().getName());
+			assertNotSame(defaults, SearchFieldDefaults.get());
+		} finally {
+			UIManager.setLookAndFeel(laf);
+		}
+	}
+}
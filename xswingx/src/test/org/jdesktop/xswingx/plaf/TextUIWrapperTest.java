@@ -1,10 +1,24 @@
 package org.jdesktop.xswingx.plaf;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JEditorPane;
+import javax.swing.JFormattedTextField;
+import javax.swing.JPasswordField;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JTextPane;
+import javax.swing.plaf.TextUI;
+import javax.swing.plaf.basic.BasicTextAreaUI;
 import javax.swing.plaf.basic.BasicTextFieldUI;
+import javax.swing.text.EditorKit;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Position;
+import javax.swing.text.View;
 
 import org.jdesktop.xswingx.JXSearchField;
 import org.junit.Before;
@@ -26,6 +40,51 @@ public class TextUIWrapperTest {
     	assertEquals(BuddyTextFieldUI.class, wrapper.wrapUI(new JTextField()).getClass());
     	assertEquals(PromptTextAreaUI.class, wrapper.wrapUI(new JTextArea()).getClass());
     	assertEquals(SearchFieldUI.class, wrapper.wrapUI(new JXSearchField()).getClass());
+    	assertEquals(BuddyTextFieldUI.class, wrapper.wrapUI(new JPasswordField()).getClass());
+    	assertEquals(BuddyTextFieldUI.class, wrapper.wrapUI(new JFormattedTextField()).getClass());
+    	assertEquals(PromptTextAreaUI.class, wrapper.wrapUI(new JEditorPane()).getClass());
+    	assertEquals(PromptTextAreaUI.class, wrapper.wrapUI(new JTextPane()).getClass());
+	}
+	
+	@Test
+    public void testRegisterFactory() throws Exception {
+    	final PromptTextUI ui = new PromptTextAreaUI(new CustomTextAreaUI());
+    	TextUIWrapper.DefaultWrapper.register(CustomTextAreaUI.class, new TextUIWrapper.PromptUIFactory() {
+    		public PromptTextUI createUI(JTextComponent textComponent, TextUI textUI) {
+    			return ui;
+    		}
+    	});
+    	try {
+    		JTextArea area = new JTextArea();
+    		area.setUI(new CustomTextAreaUI() {
+    		});
+    		assertSame(ui, wrapper.wrapUI(area));
+    		assertEquals(PromptTextAreaUI.class, wrapper.wrapUI(new JTextArea()).getClass());
+    	} finally {
+    		TextUIWrapper.DefaultWrapper.register(CustomTextAreaUI.class, null);
+    	}
+    	JTextArea area = new JTextArea();
+    	area.setUI(new CustomTextAreaUI());
+    	assertEquals(PromptTextAreaUI.class, wrapper.wrapUI(area).getClass());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedUI() throws Exception {
+    	JTextField field = new JTextField();
+    	field.setUI(new TextUI() {
+    		public Rectangle modelToView(JTextComponent t, int pos) { return null; }
+    		public Rectangle modelToView(JTextComponent t, int pos, Position.Bias bias) { return null; }
+    		public int viewToModel(JTextComponent t, Point pt) { return 0; }
+    		public int viewToModel(JTextComponent t, Point pt, Position.Bias[] biasReturn) { return 0; }
+    		public int getNextVisualPositionFrom(JTextComponent t, int pos, Position.Bias b, int direction,
+    				Position.Bias[] biasRet) { return 0; }
+    		public void damageRange(JTextComponent t, int p0, int p1) { }
+    		public void damageRange(JTextComponent t, int p0, int p1, Position.Bias firstBias,
+    				Position.Bias secondBias) { }
+    		public EditorKit getEditorKit(JTextComponent t) { return null; }
+    		public View getRootView(JTextComponent t) { return null; }
+    	});
+    	wrapper.wrapUI(field);
 	}
 	
 	
@@ -60,4 +119,7 @@ public class TextUIWrapperTest {
     	txt.setUI(new BasicTextFieldUI());
     	assertEquals(BuddyTextFieldUI.class, txt.getUI().getClass());
 	}
+	
+	private static class CustomTextAreaUI extends BasicTextAreaUI {
+	}
 }